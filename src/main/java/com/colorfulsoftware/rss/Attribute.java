@@ -34,7 +34,8 @@ public class Attribute implements Serializable {
 	// use the factory method in the RSSDoc.
 	Attribute(String name, String value) throws RSSpectException {
 		if (name == null || name.equals("")) {
-			throw new RSSpectException("Attribute names SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"Attribute names SHOULD NOT be blank.");
 		}
 		this.name = name;
 		this.value = (value == null) ? "" : value;
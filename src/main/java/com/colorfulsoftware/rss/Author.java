@@ -59,7 +59,8 @@ public class Author implements Serializable {
 
 	Author(String author) throws RSSpectException {
 		if (author == null || author.equals("")) {
-			throw new RSSpectException("Author names SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"Author names SHOULD NOT be blank.");
 		}
 		this.author = author;
 	}
@@ -83,7 +83,7 @@ public class Category implements Serializable {
 		this.domain = (domain == null) ? null : new Attribute(domain);
 		// spec doesn't require it but category should be present
 		if (category == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
 					"Category elements SHOULD contain text data.  Empty strings are allowed.");
 		}
 		this.category = category;
@@ -109,6 +109,11 @@ public class Category implements Serializable {
 
 	}
 
+	// the domain without a copy for the RSSWriter.
+	Attribute domain() {
+		return domain;
+	}
+
 	/**
 	 * Shows the contents of the &lt;category> element.
 	 */
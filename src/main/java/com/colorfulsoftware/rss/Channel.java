@@ -19,6 +19,8 @@ import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
+import javax.xml.namespace.QName;
+
 /**
  * <p>
  * The &lt;channel> element.
@@ -91,7 +93,8 @@ public class Channel implements Serializable {
 
 	private final List<Extension> extensions;
 
-	private List<String> unboundPrefixes;
+	// the extensions by name and namespace, built when first needed.
+	private transient volatile ExtensionIndex extensionIndex;
 
 	Channel(Title title, Link link, Description description, Language language,
 			Copyright copyright, ManagingEditor managingEditor,
@@ -104,21 +107,21 @@ public class Channel implements Serializable {
 
 		// make sure title is present
 		if (title == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"channel elements MUST contain a title element.");
 		}
 		this.title = new Title(title);
 
 		// make sure link is present
 		if (link == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"channel elements MUST contain a link element.");
 		}
 		this.link = new Link(link);
 
 		// make sure description is present
 		if (description == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"channel elements MUST contain a description element.");
 		}
 		this.description = new Description(description);
@@ -151,18 +154,11 @@ public class Channel implements Serializable {
 		this.skipHours = (skipHours == null) ? null : new SkipHours(skipHours);
 		this.skipDays = (skipDays == null) ? null : new SkipDays(skipDays);
 
-		// check that the extension prefixes are bound to a namespace
-		this.unboundPrefixes = new LinkedList<String>();
-
 		if (items == null) {
 			this.items = null;
 		} else {
 			this.items = new LinkedList<Item>();
 			for (Item item : items) {
-				// add any unbound prefixes to test.
-				if (item.getUnboundPrefixes() != null) {
-					this.unboundPrefixes.addAll(item.getUnboundPrefixes());
-				}
 				this.items.add(new Item(item));
 			}
 		}
@@ -171,19 +167,10 @@ public class Channel implements Serializable {
 			this.extensions = null;
 		} else {
 			this.extensions = new LinkedList<Extension>();
-
 			for (Extension extension : extensions) {
-				// check that the extension prefix is bound to a namespace
-				String namespacePrefix = extension.getNamespacePrefix();
-				if (namespacePrefix != null) {
-					this.unboundPrefixes.add(namespacePrefix);
-				}
 				this.extensions.add(new Extension(extension));
 			}
 		}
-
-		this.unboundPrefixes = (this.unboundPrefixes.size() == 0) ? null
-				: this.unboundPrefixes;
 	}
 
 	Channel(Channel channel) {
@@ -208,7 +195,7 @@ public class Channel implements Serializable {
 		this.skipDays = channel.getSkipDays();
 		this.items = channel.getItems();
 		this.extensions = channel.getExtensions();
-		this.unboundPrefixes = channel.getUnboundPrefixes();
+		this.extensionIndex = channel.extensionIndex;
 	}
 
 	/**
@@ -229,7 +216,7 @@ public class Channel implements Serializable {
 	 * @return the description element.
 	 */
 	public Description getDescription() {
-		return new Description(description.getDescription());
+		return new Description(description);
 	}
 
 	/**
@@ -430,14 +417,138 @@ public class Channel implements Serializable {
 	 * @return the extension matching the element or null if not found.
 	 */
 	public Extension getExtension(String extName) {
-		if (this.extensions != null) {
-			for (Extension extension : this.extensions) {
-				if (extension.getElementName().equals(extName)) {
-					return new Extension(extension);
-				}
-			}
+		Extension extension = extensionIndex().get(extName);
+		return (extension == null) ? null : new Extension(extension);
+	}
+
+	/**
+	 * @param qName
+	 *            the qualified name of the extension. Only the namespace and
+	 *            the local part are compared so the prefix the document used
+	 *            does not matter.
+	 * @return the first extension matching the name or null if not found.
+	 */
+	public Extension getExtension(QName qName) {
+		List<Extension> found = extensionIndex().get(qName);
+		return found.isEmpty() ? null : new Extension(found.get(0));
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extension eg.
+	 *            http://search.yahoo.com/mrss/
+	 * @param localName
+	 *            the element name without the prefix eg. "content"
+	 * @return an unmodifiable list of the matching extensions in document
+	 *         order, whatever prefix they were written with. The list is
+	 *         empty if there are none.
+	 */
+	public List<Extension> getExtensions(String namespaceURI, String localName) {
+		return extensionIndex().get(namespaceURI, localName);
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extensions.
+	 * @return an unmodifiable list of the extensions of the namespace in
+	 *         document order. The list is empty if there are none.
+	 */
+	public List<Extension> getExtensionsByNamespace(String namespaceURI) {
+		return extensionIndex().getByNamespace(namespaceURI);
+	}
+
+	private ExtensionIndex extensionIndex() {
+		ExtensionIndex index = extensionIndex;
+		if (index == null) {
+			extensionIndex = index = ExtensionIndex.build(extensions);
 		}
-		return null;
+		return index;
+	}
+
+	// the RSSWriter reads the channel through these without copying it or
+	// its items.
+	Title title() {
+		return title;
+	}
+
+	Link link() {
+		return link;
+	}
+
+	Description description() {
+		return description;
+	}
+
+	Language language() {
+		return language;
+	}
+
+	Copyright copyright() {
+		return copyright;
+	}
+
+	ManagingEditor managingEditor() {
+		return managingEditor;
+	}
+
+	WebMaster webMaster() {
+		return webMaster;
+	}
+
+	PubDate pubDate() {
+		return pubDate;
+	}
+
+	LastBuildDate lastBuildDate() {
+		return lastBuildDate;
+	}
+
+	List<Category> categories() {
+		return categories;
+	}
+
+	Generator generator() {
+		return generator;
+	}
+
+	Docs docs() {
+		return docs;
+	}
+
+	Cloud cloud() {
+		return cloud;
+	}
+
+	TTL ttl() {
+		return ttl;
+	}
+
+	Image image() {
+		return image;
+	}
+
+	Rating rating() {
+		return rating;
+	}
+
+	TextInput textInput() {
+		return textInput;
+	}
+
+	SkipHours skipHours() {
+		return skipHours;
+	}
+
+	SkipDays skipDays() {
+		return skipDays;
+	}
+
+	List<Item> items() {
+		return items;
+	}
+
+	List<Extension> extensions() {
+		return extensions;
 	}
 
 	/**
@@ -535,10 +646,6 @@ public class Channel implements Serializable {
 		return sb.toString();
 	}
 
-	List<String> getUnboundPrefixes() {
-		return unboundPrefixes;
-	}
-	
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this) {
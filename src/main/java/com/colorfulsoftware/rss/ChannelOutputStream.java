@@ -0,0 +1,94 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>
+ * This class is used by the RSSDoc to write documents to a
+ * WritableByteChannel. The bytes are collected in a direct buffer that is
+ * reused by every stream opened on the same thread, so writing a document
+ * does not allocate a buffer and the channel does not copy the bytes into a
+ * temporary direct buffer of its own. A stream must be flushed before the
+ * next one is opened on the same thread. Closing it does not close the
+ * channel.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+class ChannelOutputStream extends OutputStream {
+
+	private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(16384);
+		}
+	};
+
+	private final WritableByteChannel channel;
+
+	private final ByteBuffer buf;
+
+	ChannelOutputStream(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buf = buffers.get();
+		this.buf.clear();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (!buf.hasRemaining()) {
+			drain();
+		}
+		buf.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (!buf.hasRemaining()) {
+				drain();
+			}
+			int n = Math.min(len, buf.remaining());
+			buf.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+	private void drain() throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+}
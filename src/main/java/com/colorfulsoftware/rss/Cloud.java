@@ -90,46 +90,74 @@ public class Cloud implements Serializable {
 	private final Attribute registerProcedure;
 	private final Attribute protocol;
 
-	Cloud(List<Attribute> attributes) throws RSSpectException {
+	Cloud(List<Attribute> attributes, ValidationLevel validation)
+			throws RSSpectException {
 		if (attributes == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
 					"The cloud element requires attributes:  See \"http://cyber.law.harvard.edu/rss/soapMeetsRss.html#rsscloudInterface\".");
-		} else {
-			this.attributes = new LinkedList<Attribute>();
-			for (Attribute attr : attributes) {
-				// check for unsupported attribute.
-				this.attributes.add(new Attribute(attr.getName(), attr
-						.getValue()));
-			}
 		}
 
-		if ((this.domain = getAttribute("domain")) == null) {
-			throw new RSSpectException(
-					"cloud elements MUST have a domain attribute.");
+		// copy the attributes and pick out the named ones in a single pass.
+		this.attributes = new LinkedList<Attribute>();
+		Attribute domain = null;
+		Attribute port = null;
+		Attribute path = null;
+		Attribute registerProcedure = null;
+		Attribute protocol = null;
+		for (Attribute attr : attributes) {
+			Attribute local = new Attribute(attr);
+			this.attributes.add(local);
+			String name = local.getName();
+			if (domain == null && name.equals("domain")) {
+				domain = local;
+			} else if (port == null && name.equals("port")) {
+				port = local;
+			} else if (path == null && name.equals("path")) {
+				path = local;
+			} else if (registerProcedure == null
+					&& name.equals("registerProcedure")) {
+				registerProcedure = local;
+			} else if (protocol == null && name.equals("protocol")) {
+				protocol = local;
+			}
 		}
+		this.domain = domain;
+		this.port = port;
+		this.path = path;
+		this.registerProcedure = registerProcedure;
+		this.protocol = protocol;
 
-		if ((this.port = getAttribute("port")) == null) {
-			throw new RSSpectException(
-					"cloud elements MUST have a port attribute.");
-		}
+		if (validation.checkStructure()) {
+			if (this.domain == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"cloud elements MUST have a domain attribute.");
+			}
 
-		if ((this.path = getAttribute("path")) == null) {
-			throw new RSSpectException(
-					"cloud elements MUST have a path attribute.");
-		}
+			if (this.port == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"cloud elements MUST have a port attribute.");
+			}
 
-		if ((this.registerProcedure = getAttribute("registerProcedure")) == null) {
-			throw new RSSpectException(
-					"cloud elements MUST have a registerProcedure attribute.");
-		}
+			if (this.path == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"cloud elements MUST have a path attribute.");
+			}
+
+			if (this.registerProcedure == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"cloud elements MUST have a registerProcedure attribute.");
+			}
 
-		if ((this.protocol = getAttribute("protocol")) == null) {
-			throw new RSSpectException(
-					"cloud elements MUST have a protocol attribute.");
+			if (this.protocol == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"cloud elements MUST have a protocol attribute.");
+			}
 		}
-		if (!getAttribute("protocol").getValue().equals("xml-rpc")
-				&& !getAttribute("protocol").getValue().equals("soap")) {
-			throw new RSSpectException(
+
+		if (validation.checkValues()
+				&& !this.protocol.getValue().equals("xml-rpc")
+				&& !this.protocol.getValue().equals("soap")) {
+			throw new RSSpectException(ErrorCode.INVALID_VALUE,
 					"the cloud's protocol attribute must be 'xml-rpc' or 'soap', case-sensitive.");
 		}
 	}
@@ -160,35 +188,36 @@ public class Cloud implements Serializable {
 	 * @return the domain attribute.
 	 */
 	public Attribute getDomain() {
-		return new Attribute(domain);
+		return (domain == null) ? null : new Attribute(domain);
 	}
 
 	/**
 	 * @return the port attribute
 	 */
 	public Attribute getPort() {
-		return new Attribute(port);
+		return (port == null) ? null : new Attribute(port);
 	}
 
 	/**
 	 * @return the path attribute
 	 */
 	public Attribute getPath() {
-		return new Attribute(path);
+		return (path == null) ? null : new Attribute(path);
 	}
 
 	/**
 	 * @return the registerProcedure attribute.
 	 */
 	public Attribute getRegisterProcedure() {
-		return new Attribute(registerProcedure);
+		return (registerProcedure == null) ? null : new Attribute(
+				registerProcedure);
 	}
 
 	/**
 	 * @return the protocol attribute.
 	 */
 	public Attribute getProtocol() {
-		return new Attribute(protocol);
+		return (protocol == null) ? null : new Attribute(protocol);
 	}
 
 	/**
@@ -205,6 +234,11 @@ public class Cloud implements Serializable {
 		return null;
 	}
 
+	// the attributes without a copy for the RSSWriter.
+	List<Attribute> attributes() {
+		return attributes;
+	}
+
 	/**
 	 * Shows the contents of the &lt;cloud> element.
 	 */
@@ -62,7 +62,8 @@ public class Comments implements Serializable {
 
 	Comments(String comments) throws RSSpectException {
 		if (comments == null || comments.equals("")) {
-			throw new RSSpectException("comments SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"comments SHOULD NOT be blank.");
 		}
 		this.comments = comments;
 	}
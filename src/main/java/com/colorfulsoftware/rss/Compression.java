@@ -0,0 +1,63 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+/**
+ * <p>
+ * The compression applied to a written rss document. The names match the
+ * HTTP Content-Encoding values.
+ * </p>
+ * 
+ * <ul>
+ * <li><b>NONE</b> - the plain document.</li>
+ * <li><b>GZIP</b> - the gzip format (RFC 1952).</li>
+ * <li><b>DEFLATE</b> - the zlib format (RFC 1950) used by the HTTP deflate
+ * content encoding.</li>
+ * </ul>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public enum Compression {
+
+	/**
+	 * no compression.
+	 */
+	NONE(null),
+
+	/**
+	 * gzip compression.
+	 */
+	GZIP("gzip"),
+
+	/**
+	 * zlib compression.
+	 */
+	DEFLATE("deflate");
+
+	private final String contentEncoding;
+
+	private Compression(String contentEncoding) {
+		this.contentEncoding = contentEncoding;
+	}
+
+	/**
+	 * @return the HTTP Content-Encoding value eg. gzip or null for NONE.
+	 */
+	public String getContentEncoding() {
+		return contentEncoding;
+	}
+}
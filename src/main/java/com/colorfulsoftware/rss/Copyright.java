@@ -40,7 +40,8 @@ public class Copyright implements Serializable {
 
 	Copyright(String copyright) throws RSSpectException {
 		if (copyright == null || copyright.equals("")) {
-			throw new RSSpectException("copyright SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"copyright SHOULD NOT be blank.");
 		}
 		this.copyright = copyright;
 	}
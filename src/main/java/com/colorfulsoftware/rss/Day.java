@@ -38,16 +38,18 @@ public class Day implements Serializable {
 
 	private final String day;
 
-	Day(String day) throws RSSpectException {
+	Day(String day, ValidationLevel validation) throws RSSpectException {
 		if (day == null || day.equals("")) {
-			throw new RSSpectException("day SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"day SHOULD NOT be blank.");
 		}
 		this.day = day;
-		if (!this.day.equals("Monday") && !this.day.equals("Tuesday")
+		if (validation.checkValues() && !this.day.equals("Monday")
+				&& !this.day.equals("Tuesday")
 				&& !this.day.equals("Wednesday")
 				&& !this.day.equals("Thursday") && !this.day.equals("Friday")
 				&& !this.day.equals("Saturday") && !this.day.equals("Sunday")) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.INVALID_VALUE,
 					"day elements must have a value of Monday, Tuesday, Wednesday, Thursday, Friday, Saturday or Sunday.");
 		}
 
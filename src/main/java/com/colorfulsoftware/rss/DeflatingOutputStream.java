@@ -0,0 +1,207 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ * This class is used by the RSSDoc to compress documents as they are written.
+ * Unlike GZIPOutputStream and DeflaterOutputStream it takes its Deflater and
+ * output buffer from a small shared pool instead of allocating new ones (and
+ * their native memory) for every document. finish() or release() gives them
+ * back. The pool keeps at most POOL_SIZE deflaters of each kind and ends the
+ * ones it cannot keep, so the native memory held does not grow with the number
+ * of threads. Like the other writers it does not close the underlying output
+ * stream.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+class DeflatingOutputStream extends OutputStream {
+
+	// the gzip header with no file name, modification time or flags.
+	private static final byte[] GZIP_HEADER = { (byte) 0x1f, (byte) 0x8b,
+			Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	// the number of idle deflaters kept for each compression.
+	private static final int POOL_SIZE = 4;
+
+	// the idle deflaters for gzip (raw deflate data) and for deflate (zlib
+	// data) along with their buffers.
+	private static final LinkedList<Pooled> gzipPool = new LinkedList<Pooled>();
+
+	private static final LinkedList<Pooled> deflatePool = new LinkedList<Pooled>();
+
+	// a deflater and the buffer it deflates into.
+	private static final class Pooled {
+		private final Deflater deflater;
+		private final byte[] buf = new byte[8192];
+
+		private Pooled(boolean gzip) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+		}
+	}
+
+	private final OutputStream out;
+
+	private final LinkedList<Pooled> pool;
+
+	private Pooled pooled;
+
+	private final Deflater deflater;
+
+	private final byte[] buf;
+
+	// the checksum of the uncompressed bytes for the gzip trailer.
+	private final CRC32 crc;
+
+	private final byte[] single = new byte[1];
+
+	private boolean finished = false;
+
+	/**
+	 * @param out
+	 *            the stream to write the compressed bytes to.
+	 * @param compression
+	 *            GZIP or DEFLATE.
+	 * @throws IOException
+	 *             if the gzip header cannot be written.
+	 */
+	DeflatingOutputStream(OutputStream out, Compression compression)
+			throws IOException {
+		this.out = out;
+		boolean gzip = (compression == Compression.GZIP);
+		this.pool = gzip ? gzipPool : deflatePool;
+		synchronized (pool) {
+			pooled = pool.poll();
+		}
+		if (pooled == null) {
+			pooled = new Pooled(gzip);
+		}
+		this.deflater = pooled.deflater;
+		this.buf = pooled.buf;
+		if (gzip) {
+			crc = new CRC32();
+			out.write(GZIP_HEADER);
+		} else {
+			crc = null;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished) {
+			throw new IOException("the compressed stream is finished.");
+		}
+		if (len == 0) {
+			return;
+		}
+		if (crc != null) {
+			crc.update(b, off, len);
+		}
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			deflate();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * writes the rest of the compressed bytes and the gzip trailer.
+	 * 
+	 * @throws IOException
+	 *             if the bytes cannot be written.
+	 */
+	void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		try {
+			deflater.finish();
+			while (!deflater.finished()) {
+				deflate();
+			}
+			if (crc != null) {
+				writeInt((int) crc.getValue());
+				writeInt((int) deflater.getBytesRead());
+			}
+			out.flush();
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * gives the deflater back to the pool without finishing the stream, eg.
+	 * when writing the document failed. Nothing can be written afterwards.
+	 */
+	void release() {
+		finished = true;
+		if (pooled == null) {
+			return;
+		}
+		deflater.reset();
+		boolean kept = false;
+		synchronized (pool) {
+			if (pool.size() < POOL_SIZE) {
+				pool.add(pooled);
+				kept = true;
+			}
+		}
+		if (!kept) {
+			// free the native memory now rather than when it is collected.
+			deflater.end();
+		}
+		pooled = null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+	}
+
+	private void deflate() throws IOException {
+		int len = deflater.deflate(buf, 0, buf.length);
+		if (len > 0) {
+			out.write(buf, 0, len);
+		}
+	}
+
+	// little endian as required by the gzip trailer.
+	private void writeInt(int i) throws IOException {
+		out.write(i & 0xff);
+		out.write((i >> 8) & 0xff);
+		out.write((i >> 16) & 0xff);
+		out.write((i >> 24) & 0xff);
+	}
+}
@@ -15,7 +15,10 @@
  */
 package com.colorfulsoftware.rss;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
 
 /**
  * <p>
@@ -42,20 +45,52 @@ public class Description implements Serializable {
 
 	private final String description;
 
+	// the text when it was too long to keep in memory.
+	private final SpilledText spilled;
+
 	Description(String description) {
 		// not sure why, but descriptions can be blank.
 		this.description = (description == null) ? "" : description;
+		this.spilled = null;
+	}
+
+	Description(SpilledText spilled) {
+		this.description = null;
+		this.spilled = spilled;
 	}
 	
 	Description(Description description){
 		this.description = description.description;
+		this.spilled = description.spilled;
 	}
 
 	/**
-	 * @return the description (can be the empty string).
+	 * @return the description (can be the empty string). A description that
+	 *         was kept in a temporary file is read from it on each call.
 	 */
 	public String getDescription() {
-		return description;
+		return (spilled == null) ? description : spilled.read();
+	}
+
+	/**
+	 * @return a reader over the description for descriptions that are too
+	 *         long to handle as a String. The caller closes it.
+	 * @throws IOException
+	 *             if the temporary file of the description cannot be opened.
+	 */
+	public Reader getReader() throws IOException {
+		return (spilled == null) ? new StringReader(description) : spilled
+				.openReader();
+	}
+
+	// the RSSWriter streams the text from here instead of reading it all.
+	SpilledText spilled() {
+		return spilled;
+	}
+
+	// the temporary file does not travel with the object.
+	private Object writeReplace() {
+		return (spilled == null) ? this : new Description(getDescription());
 	}
 
 	/**
@@ -63,7 +98,7 @@ public class Description implements Serializable {
 	 */
 	@Override
 	public String toString() {
-		return "<description>" + description + "</description>";
+		return "<description>" + getDescription() + "</description>";
 	}
 	
 	@Override
@@ -39,7 +39,8 @@ public class Docs implements Serializable {
 
 	Docs(String docs) throws RSSpectException {
 		if (docs == null || docs.equals("")) {
-			throw new RSSpectException("docs SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"docs SHOULD NOT be blank.");
 		}
 		this.docs = docs;
 	}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * <p>
+ * This class is used by the RSSReader to keep track of the path, line and
+ * column of the open elements while a document is being read so that problems
+ * can be reported where they happen. It also enforces the depth and text
+ * length ReaderLimits.
+ * </p>
+ *
+ * @author Bill Brown
+ *
+ */
+class ElementPathReader extends StreamReaderDelegate {
+
+	private String[] names = new String[16];
+	private int[] lines = new int[16];
+	private int[] columns = new int[16];
+	private int depth = 0;
+
+	// true when the current event is the end of the element on top of the
+	// stack.
+	private boolean endPending = false;
+
+	private final int maxDepth;
+	private final int maxTextLength;
+
+	// the length of the text read since the last tag.
+	private int textLength = 0;
+
+	// the reason reading stopped if a limit was crossed.
+	private String limitExceeded;
+
+	ElementPathReader(XMLStreamReader reader) {
+		this(reader, 0, 0);
+	}
+
+	/**
+	 * @param reader
+	 *            the reader to track.
+	 * @param maxDepth
+	 *            the maximum nesting depth or 0 for no limit.
+	 * @param maxTextLength
+	 *            the maximum length of the text between two tags or 0 for no
+	 *            limit.
+	 */
+	ElementPathReader(XMLStreamReader reader, int maxDepth, int maxTextLength) {
+		super(reader);
+		this.maxDepth = maxDepth;
+		this.maxTextLength = maxTextLength;
+	}
+
+	@Override
+	public int next() throws XMLStreamException {
+		if (endPending) {
+			endPending = false;
+			depth--;
+		}
+		int next = super.next();
+		switch (next) {
+		case XMLStreamConstants.START_ELEMENT:
+			textLength = 0;
+			push();
+			if (maxDepth > 0 && depth > maxDepth) {
+				exceeded("the document is nested deeper than the limit of "
+						+ maxDepth + " elements.");
+			}
+			break;
+		case XMLStreamConstants.END_ELEMENT:
+			textLength = 0;
+			endPending = true;
+			break;
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.CDATA:
+		case XMLStreamConstants.SPACE:
+			if (maxTextLength > 0) {
+				textLength += getTextLength();
+				checkTextLength();
+			}
+			break;
+		}
+		return next;
+	}
+
+	// the delegate's version would move the parser without the path seeing
+	// the elements it passes.
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int event = next();
+		while ((event == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+				|| (event == XMLStreamConstants.CDATA && isWhiteSpace())
+				|| event == XMLStreamConstants.SPACE
+				|| event == XMLStreamConstants.PROCESSING_INSTRUCTION
+				|| event == XMLStreamConstants.COMMENT) {
+			event = next();
+		}
+		if (event != XMLStreamConstants.START_ELEMENT
+				&& event != XMLStreamConstants.END_ELEMENT) {
+			throw new XMLStreamException("expected start or end tag",
+					getLocation());
+		}
+		return event;
+	}
+
+	// the delegate's version would build the whole text before its length
+	// could be checked. Reading it through next() checks the length of each
+	// event as it comes and keeps the path up to date.
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if (getEventType() != XMLStreamConstants.START_ELEMENT) {
+			throw new XMLStreamException(
+					"parser must be on START_ELEMENT to read next text",
+					getLocation());
+		}
+		StringBuilder text = new StringBuilder();
+		int event = next();
+		while (event != XMLStreamConstants.END_ELEMENT) {
+			switch (event) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				text.append(getText());
+				break;
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			case XMLStreamConstants.COMMENT:
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				throw new XMLStreamException(
+						"unexpected end of document when reading element text content",
+						getLocation());
+			case XMLStreamConstants.START_ELEMENT:
+				throw new XMLStreamException(
+						"elementGetText() function expects text only elment but START_ELEMENT was encountered.",
+						getLocation());
+			default:
+				throw new XMLStreamException("Unexpected event type " + event,
+						getLocation());
+			}
+			event = next();
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @return the reason reading stopped or null if no limit was crossed.
+	 */
+	String getLimitExceeded() {
+		return limitExceeded;
+	}
+
+	private void checkTextLength() throws XMLStreamException {
+		if (textLength > maxTextLength) {
+			exceeded("a text node is longer than the limit of "
+					+ maxTextLength + " characters.");
+		}
+	}
+
+	private void exceeded(String message) throws XMLStreamException {
+		limitExceeded = message;
+		throw new XMLStreamException(message, getLocation());
+	}
+
+	/**
+	 * @return the number of open elements including the current one.
+	 */
+	int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return the path of the current element eg. /rss/channel/item/title
+	 */
+	String getPath() {
+		StringBuilder path = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			path.append('/').append(names[i]);
+		}
+		return (path.length() == 0) ? "/" : path.toString();
+	}
+
+	/**
+	 * @return the line of the start tag of the current element.
+	 */
+	int getLineNumber() {
+		return (depth == 0) ? getLocation().getLineNumber() : lines[depth - 1];
+	}
+
+	/**
+	 * @return the column of the start tag of the current element.
+	 */
+	int getColumnNumber() {
+		return (depth == 0) ? getLocation().getColumnNumber()
+				: columns[depth - 1];
+	}
+
+	/**
+	 * moves the reader to the end of the current element.
+	 *
+	 * @throws XMLStreamException
+	 *             if the rest of the element cannot be read.
+	 */
+	void skipElement() throws XMLStreamException {
+		int target = depth;
+		while (target > 0
+				&& !(endPending && depth == target)
+				&& hasNext()) {
+			next();
+		}
+	}
+
+	private void push() {
+		if (depth == names.length) {
+			names = grow(names);
+			lines = grow(lines);
+			columns = grow(columns);
+		}
+		String prefix = getPrefix();
+		names[depth] = (prefix != null && !prefix.equals("")) ? prefix + ":"
+				+ getLocalName() : getLocalName();
+		Location location = getLocation();
+		lines[depth] = location.getLineNumber();
+		columns[depth] = location.getColumnNumber();
+		depth++;
+	}
+
+	private static String[] grow(String[] array) {
+		String[] grown = new String[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -72,32 +72,50 @@ public class Enclosure implements Serializable {
 	private final Attribute length;
 	private final Attribute type;
 
-	Enclosure(List<Attribute> attributes) throws RSSpectException {
+	Enclosure(List<Attribute> attributes, ValidationLevel validation)
+			throws RSSpectException {
 
 		if (attributes == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
 					"enclosure elements MUST contain the url, length and type attributes.  See: http://cyber.law.harvard.edu/rss/rss.html#ltenclosuregtSubelementOfLtitemgt");
-		} else {
-			this.attributes = new LinkedList<Attribute>();
-			for (Attribute attr : attributes) {
-				// check for unsupported attribute.
-				this.attributes.add(new Attribute(attr));
-			}
 		}
 
-		if ((this.url = getAttribute("url")) == null) {
-			throw new RSSpectException(
-					"enclosure elements MUST have a url attribute.");
+		// copy the attributes and pick out the named ones in a single pass.
+		this.attributes = new LinkedList<Attribute>();
+		Attribute url = null;
+		Attribute length = null;
+		Attribute type = null;
+		for (Attribute attr : attributes) {
+			Attribute local = new Attribute(attr);
+			this.attributes.add(local);
+			String name = local.getName();
+			if (url == null && name.equals("url")) {
+				url = local;
+			} else if (length == null && name.equals("length")) {
+				length = local;
+			} else if (type == null && name.equals("type")) {
+				type = local;
+			}
 		}
+		this.url = url;
+		this.length = length;
+		this.type = type;
+
+		if (validation.checkStructure()) {
+			if (this.url == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"enclosure elements MUST have a url attribute.");
+			}
 
-		if ((this.length = getAttribute("length")) == null) {
-			throw new RSSpectException(
-					"enclosure elements MUST have a length attribute.");
-		}
+			if (this.length == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"enclosure elements MUST have a length attribute.");
+			}
 
-		if ((this.type = getAttribute("type")) == null) {
-			throw new RSSpectException(
-					"enclosure elements MUST have a type attribute.");
+			if (this.type == null) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
+						"enclosure elements MUST have a type attribute.");
+			}
 		}
 
 	}
@@ -127,7 +145,7 @@ public class Enclosure implements Serializable {
 	 * @return the url attribute
 	 */
 	public Attribute getUrl() {
-		return new Attribute(url);
+		return (url == null) ? null : new Attribute(url);
 
 	}
 
@@ -135,14 +153,14 @@ public class Enclosure implements Serializable {
 	 * @return the length attribute.
 	 */
 	public Attribute getLength() {
-		return new Attribute(length);
+		return (length == null) ? null : new Attribute(length);
 	}
 
 	/**
 	 * @return the type attribute.
 	 */
 	public Attribute getType() {
-		return new Attribute(type);
+		return (type == null) ? null : new Attribute(type);
 	}
 
 	/**
@@ -159,6 +177,11 @@ public class Enclosure implements Serializable {
 		return null;
 	}
 
+	// the attributes without a copy for the RSSWriter.
+	List<Attribute> attributes() {
+		return attributes;
+	}
+
 	/**
 	 * Shows the contents of the &lt;enclosure> element.
 	 */
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * <p>
+ * This class is used by the RSSReader to replace the undeclared html entities
+ * of a feed (&amp;nbsp;, &amp;eacute; etc.) with their characters while the
+ * document is being read. The RSSDoc does not let the parser replace entity
+ * references so that such feeds can be read at all; this reader turns the
+ * entity references it knows into character events instead. Entities that are
+ * not html entities are passed on as they are.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+class EntityResolvingReader extends StreamReaderDelegate {
+
+	// the text of the current entity reference or null.
+	private String resolved;
+
+	EntityResolvingReader(XMLStreamReader reader) {
+		super(reader);
+	}
+
+	@Override
+	public int next() throws XMLStreamException {
+		int next = super.next();
+		resolved = (next == XMLStreamConstants.ENTITY_REFERENCE) ? HTMLEntities
+				.resolve(super.getLocalName())
+				: null;
+		return (resolved == null) ? next : XMLStreamConstants.CHARACTERS;
+	}
+
+	@Override
+	public int getEventType() {
+		return (resolved == null) ? super.getEventType()
+				: XMLStreamConstants.CHARACTERS;
+	}
+
+	@Override
+	public boolean isCharacters() {
+		return resolved != null || super.isCharacters();
+	}
+
+	@Override
+	public boolean hasText() {
+		return resolved != null || super.hasText();
+	}
+
+	@Override
+	public String getText() {
+		return (resolved == null) ? super.getText() : resolved;
+	}
+
+	@Override
+	public char[] getTextCharacters() {
+		return (resolved == null) ? super.getTextCharacters() : resolved
+				.toCharArray();
+	}
+
+	@Override
+	public int getTextCharacters(int sourceStart, char[] target,
+			int targetStart, int length) throws XMLStreamException {
+		if (resolved == null) {
+			return super.getTextCharacters(sourceStart, target, targetStart,
+					length);
+		}
+		int copied = Math.min(length, resolved.length() - sourceStart);
+		resolved.getChars(sourceStart, sourceStart + copied, target,
+				targetStart);
+		return copied;
+	}
+
+	@Override
+	public int getTextStart() {
+		return (resolved == null) ? super.getTextStart() : 0;
+	}
+
+	@Override
+	public int getTextLength() {
+		return (resolved == null) ? super.getTextLength() : resolved.length();
+	}
+
+	// the parser's own version would not see the resolved entities.
+	@Override
+	public String getElementText() throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int event = next();
+		while (event != XMLStreamConstants.END_ELEMENT) {
+			switch (event) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				text.append(getText());
+				break;
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				// an unknown entity is kept as it was written.
+				text.append('&').append(getLocalName()).append(';');
+				break;
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			case XMLStreamConstants.COMMENT:
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				throw new XMLStreamException(
+						"unexpected end of document when reading element text content",
+						getLocation());
+			case XMLStreamConstants.START_ELEMENT:
+				throw new XMLStreamException(
+						"elementGetText() function expects text only elment but START_ELEMENT was encountered.",
+						getLocation());
+			default:
+				throw new XMLStreamException("Unexpected event type " + event,
+						getLocation());
+			}
+			event = next();
+		}
+		return text.toString();
+	}
+}
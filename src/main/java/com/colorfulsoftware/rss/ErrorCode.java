@@ -0,0 +1,78 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+/**
+ * <p>
+ * The kind of problem an RSSpectException or a Violation describes. This lets
+ * callers sort problems without matching the message text.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public enum ErrorCode {
+
+	/**
+	 * an element or attribute value is blank.
+	 */
+	BLANK_VALUE,
+
+	/**
+	 * a value is out of range or not one of the allowed values.
+	 */
+	INVALID_VALUE,
+
+	/**
+	 * a date is not in RFC 822 format.
+	 */
+	INVALID_DATE,
+
+	/**
+	 * a required sub element is missing.
+	 */
+	MISSING_ELEMENT,
+
+	/**
+	 * a required attribute is missing.
+	 */
+	MISSING_ATTRIBUTE,
+
+	/**
+	 * an extension prefix is not bound to a namespace declaration.
+	 */
+	UNBOUND_PREFIX,
+
+	/**
+	 * the document crossed one of the ReaderLimits.
+	 */
+	LIMIT_EXCEEDED,
+
+	/**
+	 * the document is not well formed xml.
+	 */
+	MALFORMED_XML,
+
+	/**
+	 * an argument passed to the RSSDoc is not usable.
+	 */
+	INVALID_ARGUMENT,
+
+	/**
+	 * the problem was not classified.
+	 */
+	UNSPECIFIED
+}
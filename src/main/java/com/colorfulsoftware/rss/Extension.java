@@ -15,10 +15,15 @@
  */
 package com.colorfulsoftware.rss;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.util.LinkedList;
 import java.util.List;
 
+import javax.xml.namespace.QName;
+
 /**
  * <p>
  * The external namespace extension element.
@@ -43,15 +48,38 @@ public class Extension implements Serializable {
 	private final String elementName;
 	private final List<Attribute> attributes;
 	private final String content;
-	private final String namespacePrefix;
 
-	Extension(String elementName, List<Attribute> attributes, String content)
+	// the content when it was too long to keep in memory.
+	private final SpilledText spilled;
+
+	// the namespace, local part and prefix of the element name.
+	private final QName qName;
+	private final Object value;
+
+	// the markup of the whole element as it was read or null.
+	private final String raw;
+
+	Extension(String elementName, List<Attribute> attributes, String content,
+			ValidationLevel validation) throws RSSpectException {
+		this(null, elementName, attributes, content, null, null, null,
+				validation);
+	}
+
+	Extension(String namespaceURI, String elementName,
+			List<Attribute> attributes, String content, SpilledText spilled,
+			Object value, String raw, ValidationLevel validation)
 			throws RSSpectException {
 
 		this.elementName = elementName;
 
 		this.content = content;
 
+		this.spilled = spilled;
+
+		this.value = value;
+
+		this.raw = raw;
+
 		if (attributes == null) {
 			this.attributes = null;
 		} else {
@@ -63,34 +91,45 @@ public class Extension implements Serializable {
 
 		if (elementName == null
 				|| elementName.equals("")
-				|| (elementName.indexOf(":") == -1 && getAttribute("xmlns") == null)
-				|| elementName.indexOf(":") == 0) {
+				|| (validation.checkStructure() && (elementName.indexOf(":") == 0 || (elementName
+						.indexOf(":") == -1 && getAttribute("xmlns") == null)))) {
 
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.UNBOUND_PREFIX,
 					"Extension element '"
 							+ elementName
 							+ "' is missing a namespace prefix or namespace declaration.");
 		}
 
-		// the namespace prefix is used here for validation only.
-		if (elementName.indexOf(":") != -1) {
-			String potentialPrefix = elementName.substring(0, elementName
-					.indexOf(":"));
-			if (getAttribute("xmlns:" + potentialPrefix) == null) {
-				this.namespacePrefix = potentialPrefix;
-			} else {
-				this.namespacePrefix = null;
-			}
-		} else {
-			this.namespacePrefix = null;
+		// fall back to the namespace declared on the element itself.
+		if (namespaceURI == null && elementName != null) {
+			int colon = elementName.indexOf(":");
+			Attribute xmlns = getAttribute((colon == -1) ? "xmlns" : "xmlns:"
+					+ elementName.substring(0, colon));
+			namespaceURI = (xmlns == null) ? null : xmlns.getValue();
 		}
+		this.qName = qName(namespaceURI, elementName);
+	}
+
+	// the parts are interned since the same few names are repeated in every
+	// item of a feed.
+	private static QName qName(String namespaceURI, String elementName) {
+		int colon = elementName.indexOf(':');
+		String prefix = (colon == -1) ? "" : elementName.substring(0, colon)
+				.intern();
+		String localPart = (colon == -1) ? elementName.intern() : elementName
+				.substring(colon + 1).intern();
+		return new QName((namespaceURI == null) ? "" : namespaceURI.intern(),
+				localPart, prefix);
 	}
 
 	Extension(Extension extension) {
 		this.elementName = extension.elementName;
 		this.attributes = extension.getAttributes();
 		this.content = extension.content;
-		this.namespacePrefix = extension.namespacePrefix;
+		this.spilled = extension.spilled;
+		this.qName = extension.qName;
+		this.value = extension.value;
+		this.raw = extension.raw;
 	}
 
 	/**
@@ -108,11 +147,81 @@ public class Extension implements Serializable {
 		return (this.attributes == null) ? null : attrsCopy;
 	}
 
+	// a copy that keeps its content in memory.
+	private Extension(Extension extension, String content) {
+		this.elementName = extension.elementName;
+		this.attributes = extension.attributes;
+		this.content = content;
+		this.spilled = null;
+		this.qName = extension.qName;
+		this.value = extension.value;
+		this.raw = extension.raw;
+	}
+
 	/**
-	 * @return the content.
+	 * @return the content. Content that was kept in a temporary file is read
+	 *         from it on each call.
 	 */
 	public String getContent() {
-		return content;
+		return (spilled == null) ? content : spilled.read();
+	}
+
+	/**
+	 * @return a reader over the content for content that is too long to
+	 *         handle as a String or null if there is no content. The caller
+	 *         closes it.
+	 * @throws IOException
+	 *             if the temporary file of the content cannot be opened.
+	 */
+	public Reader getContentReader() throws IOException {
+		if (spilled != null) {
+			return spilled.openReader();
+		}
+		return (content == null) ? null : new StringReader(content);
+	}
+
+	// the RSSWriter streams the content from here instead of reading it all.
+	SpilledText spilled() {
+		return spilled;
+	}
+
+	// the temporary file does not travel with the object.
+	private Object writeReplace() {
+		return (spilled == null) ? this : new Extension(this, getContent());
+	}
+
+	/**
+	 * @return the typed value produced by an ExtensionHandler or null if the
+	 *         extension was read into its content String.
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	// the RSSWriter copies this to the output instead of writing the element.
+	String raw() {
+		return raw;
+	}
+
+	/**
+	 * @return the namespace of the element if it is known or null. It is known
+	 *         when the extension was read from a document or declares its
+	 *         namespace with an xmlns attribute.
+	 */
+	public String getNamespaceURI() {
+		String namespaceURI = qName.getNamespaceURI();
+		return (namespaceURI.length() == 0) ? null : namespaceURI;
+	}
+
+	/**
+	 * @return the qualified name of the element. The namespace uri is an empty
+	 *         String if the namespace is not known and the prefix is the one
+	 *         the element was written with. Two extensions with the same
+	 *         namespace and local part have equal qualified names whatever
+	 *         their prefixes are.
+	 */
+	public QName getQName() {
+		return qName;
 	}
 
 	/**
@@ -138,6 +247,11 @@ public class Extension implements Serializable {
 		return null;
 	}
 
+	// the attributes without a copy for the RSSWriter.
+	List<Attribute> attributes() {
+		return attributes;
+	}
+
 	/**
 	 * Shows the contents of the extension element.
 	 */
@@ -150,19 +264,20 @@ public class Extension implements Serializable {
 			}
 		}
 
-		if (content == null || content.equals("")) {
-			sb.append(" />");
+		if (value != null) {
+			sb.append(" >" + value + "</" + elementName + ">");
 		} else {
-			sb.append(" >" + content + "</" + elementName + ">");
+			String text = getContent();
+			if (text == null || text.equals("")) {
+				sb.append(" />");
+			} else {
+				sb.append(" >" + text + "</" + elementName + ">");
+			}
 		}
 
 		return sb.toString();
 	}
 
-	String getNamespacePrefix() {
-		return namespacePrefix;
-	}
-	
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this) {
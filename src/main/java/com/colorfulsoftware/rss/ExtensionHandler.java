@@ -0,0 +1,76 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * <p>
+ * Reads and writes the extension elements of one namespace as typed objects.
+ * Register it with RSSDoc.setExtensionHandler().
+ * </p>
+ * 
+ * <p>
+ * For example a handler for the media:content elements of Media RSS might
+ * read them like this:
+ * </p>
+ * 
+ * <pre>
+ * public Object read(XMLStreamReader reader) throws Exception {
+ * 	MediaContent content = new MediaContent(reader.getAttributeValue(null,
+ * 			&quot;url&quot;), Integer.parseInt(reader.getAttributeValue(null,
+ * 			&quot;width&quot;)));
+ * 	// move to the end of the element.
+ * 	reader.getElementText();
+ * 	return content;
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The same handler object is used for every feed the RSSDoc reads and writes
+ * so it should be thread safe if the RSSDoc is shared.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public interface ExtensionHandler {
+
+	/**
+	 * @param reader
+	 *            the reader on the start tag of an extension element of the
+	 *            namespace. The attributes are also kept by the Extension.
+	 * @return the typed value of the element. It must not be null.
+	 * @throws Exception
+	 *             if the element cannot be read. An RSSpectException is
+	 *             reported like any other invalid element. The reader must be
+	 *             left on the end tag of the element.
+	 */
+	Object read(XMLStreamReader reader) throws Exception;
+
+	/**
+	 * @param writer
+	 *            the writer positioned where the element goes.
+	 * @param extension
+	 *            the extension with the element name, attributes and typed
+	 *            value returned by read() or given to
+	 *            RSSDoc.buildTypedExtension().
+	 * @throws Exception
+	 *             if the element cannot be written.
+	 */
+	void write(XMLStreamWriter writer, Extension extension) throws Exception;
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+/**
+ * <p>
+ * This class is used by the Item, Channel and RSS elements to look their
+ * extensions up by name or by namespace without scanning the extension list.
+ * It is built the first time it is needed and never changes afterwards. The
+ * lists it returns are unmodifiable and keep the document order so that
+ * repeated elements such as media:content or atom:link are all found.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class ExtensionIndex {
+
+	private static final ExtensionIndex EMPTY = new ExtensionIndex();
+
+	// the first extension of each element name eg. "atom:link"
+	private final Map<String, Extension> byElementName;
+
+	// the extensions by qualified name, which ignores the prefix.
+	private final Map<QName, List<Extension>> byName;
+
+	// the extensions by namespace uri.
+	private final Map<String, List<Extension>> byNamespace;
+
+	private ExtensionIndex() {
+		byElementName = Collections.emptyMap();
+		byName = Collections.emptyMap();
+		byNamespace = Collections.emptyMap();
+	}
+
+	private ExtensionIndex(List<Extension> extensions) {
+		byElementName = new HashMap<String, Extension>();
+		Map<QName, List<Extension>> names = new HashMap<QName, List<Extension>>();
+		Map<String, List<Extension>> namespaces = new HashMap<String, List<Extension>>();
+		for (Extension extension : extensions) {
+			String elementName = extension.getElementName();
+			if (!byElementName.containsKey(elementName)) {
+				byElementName.put(elementName, extension);
+			}
+			add(names, extension.getQName(), extension);
+			add(namespaces, extension.getNamespaceURI(), extension);
+		}
+		// freeze the lists once they are complete.
+		freeze(names);
+		freeze(namespaces);
+		byName = names;
+		byNamespace = namespaces;
+	}
+
+	/**
+	 * @param extensions
+	 *            the extensions of the element or null.
+	 * @return the index of the extensions.
+	 */
+	static ExtensionIndex build(List<Extension> extensions) {
+		return (extensions == null || extensions.isEmpty()) ? EMPTY
+				: new ExtensionIndex(extensions);
+	}
+
+	/**
+	 * @param elementName
+	 *            the element name eg. "atom:link"
+	 * @return the first extension with the element name or null.
+	 */
+	Extension get(String elementName) {
+		return byElementName.get(elementName);
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace uri or null for extensions without a known
+	 *            namespace.
+	 * @param localName
+	 *            the element name without the prefix eg. "link"
+	 * @return the matching extensions in document order.
+	 */
+	List<Extension> get(String namespaceURI, String localName) {
+		if (localName == null) {
+			return Collections.emptyList();
+		}
+		return get(new QName((namespaceURI == null) ? "" : namespaceURI,
+				localName));
+	}
+
+	/**
+	 * @param qName
+	 *            the qualified name. The prefix is not compared.
+	 * @return the matching extensions in document order.
+	 */
+	List<Extension> get(QName qName) {
+		List<Extension> found = byName.get(qName);
+		return (found == null) ? Collections.<Extension> emptyList() : found;
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace uri.
+	 * @return the extensions of the namespace in document order.
+	 */
+	List<Extension> getByNamespace(String namespaceURI) {
+		List<Extension> found = byNamespace.get(namespaceURI);
+		return (found == null) ? Collections.<Extension> emptyList() : found;
+	}
+
+	private static <K> void add(Map<K, List<Extension>> map, K key,
+			Extension extension) {
+		List<Extension> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<Extension>(1);
+			map.put(key, list);
+		}
+		list.add(extension);
+	}
+
+	private static <K> void freeze(Map<K, List<Extension>> map) {
+		for (Map.Entry<K, List<Extension>> entry : map.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+	}
+}
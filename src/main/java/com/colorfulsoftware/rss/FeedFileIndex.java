@@ -0,0 +1,354 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * <p>
+ * This class is used by the RSSDoc to add items to a feed file without
+ * reading and writing the whole document. It keeps the byte offsets of the
+ * first item and of the &lt;/channel> end tag in a sidecar file next to the
+ * feed (feed.xml.idx) together with the length and modification time of the
+ * feed they belong to.
+ * If the sidecar is missing or the feed was changed by something else the
+ * offsets are found again by scanning the bytes of the feed, which works for
+ * the UTF-8 documents written by RSSpect. The scan follows the tags of the
+ * document so that an &lt;item> in a comment, a CDATA section or the markup of
+ * an extension is not taken for the first item of the channel.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+class FeedFileIndex {
+
+	private static final byte[] CHANNEL_END = { '<', '/', 'c', 'h', 'a', 'n',
+			'n', 'e', 'l', '>' };
+
+	// the size of the copies when moving the items and of the block searched
+	// for the end of the channel.
+	private static final int BLOCK_SIZE = 8192;
+
+	private final File feed;
+
+	private long length;
+
+	private long lastModified;
+
+	private long firstItem;
+
+	private long channelEnd;
+
+	private FeedFileIndex(File feed) {
+		this.feed = feed;
+	}
+
+	/**
+	 * @param feed
+	 *            the feed file.
+	 * @return the offsets of the feed from its sidecar or from a scan of the
+	 *         feed if the sidecar is missing or out of date.
+	 * @throws Exception
+	 *             if the feed cannot be read or has no channel end tag.
+	 */
+	static FeedFileIndex load(File feed) throws Exception {
+		FeedFileIndex index = new FeedFileIndex(feed);
+		if (!index.read()) {
+			index.scan();
+		}
+		return index;
+	}
+
+	static File getIndexFile(File feed) {
+		return new File(feed.getPath() + ".idx");
+	}
+
+	/**
+	 * writes the bytes in front of the first item.
+	 */
+	void prepend(byte[] items) throws IOException {
+		insert(firstItem, items);
+	}
+
+	/**
+	 * writes the bytes in front of the &lt;/channel> end tag.
+	 */
+	void append(byte[] items) throws IOException {
+		insert(channelEnd, items);
+	}
+
+	// moves the rest of the file along by the length of the new bytes,
+	// starting from the end, and writes the bytes into the gap.
+	private void insert(long offset, byte[] bytes) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(feed, "rw");
+		try {
+			byte[] block = new byte[BLOCK_SIZE];
+			long end = file.length();
+			while (end > offset) {
+				int len = (int) Math.min(block.length, end - offset);
+				end -= len;
+				file.seek(end);
+				file.readFully(block, 0, len);
+				file.seek(end + bytes.length);
+				file.write(block, 0, len);
+			}
+			file.seek(offset);
+			file.write(bytes);
+			length = file.length();
+		} finally {
+			file.close();
+		}
+		lastModified = feed.lastModified();
+		// the new items start at the offset of the first item either way so
+		// only the end of the channel moves.
+		channelEnd += bytes.length;
+		write();
+	}
+
+	private boolean read() {
+		File indexFile = getIndexFile(feed);
+		if (!indexFile.exists()) {
+			return false;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(
+					indexFile));
+			try {
+				length = in.readLong();
+				lastModified = in.readLong();
+				firstItem = in.readLong();
+				channelEnd = in.readLong();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		return length == feed.length() && lastModified == feed.lastModified()
+				&& firstItem <= channelEnd
+				&& channelEnd < length;
+	}
+
+	private void write() throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(
+				getIndexFile(feed)));
+		try {
+			out.writeLong(length);
+			out.writeLong(lastModified);
+			out.writeLong(firstItem);
+			out.writeLong(channelEnd);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void scan() throws Exception {
+		length = feed.length();
+		lastModified = feed.lastModified();
+		channelEnd = findChannelEnd();
+		firstItem = findFirstItem();
+		write();
+	}
+
+	// the last </channel> of the file which is followed by </rss>.
+	private long findChannelEnd() throws Exception {
+		RandomAccessFile file = new RandomAccessFile(feed, "r");
+		try {
+			int len = (int) Math.min(length, BLOCK_SIZE);
+			byte[] block = new byte[len];
+			file.seek(length - len);
+			file.readFully(block);
+			for (int i = len - CHANNEL_END.length; i >= 0; i--) {
+				if (matches(block, i, CHANNEL_END)) {
+					return length - len + i;
+				}
+			}
+		} finally {
+			file.close();
+		}
+		throw new RSSpectException(ErrorCode.MALFORMED_XML, feed
+				+ " does not end with a channel.");
+	}
+
+	// the first <item> start tag of the channel or the end of the channel if
+	// there is none.
+	private long findFirstItem() throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(feed),
+				BLOCK_SIZE);
+		try {
+			return new TagScanner(in).findFirstItem(channelEnd);
+		} finally {
+			in.close();
+		}
+	}
+
+	// reads the tags of a document a byte at a time. Comments, CDATA
+	// sections, processing instructions and declarations are skipped and
+	// the open elements are counted so that only the items of the channel
+	// are found.
+	private static class TagScanner {
+
+		private final InputStream in;
+
+		// the offset of the next byte.
+		private long position = 0;
+
+		private TagScanner(InputStream in) {
+			this.in = in;
+		}
+
+		private long findFirstItem(long end) throws IOException {
+			int depth = 0;
+			boolean inChannel = false;
+			int read;
+			while (position < end && (read = read()) != -1) {
+				if (read != '<') {
+					continue;
+				}
+				long start = position - 1;
+				read = read();
+				if (read == '!') {
+					skipDeclaration();
+				} else if (read == '?') {
+					skipPast("?>");
+				} else if (read == '/') {
+					readName(-1);
+					skipTag();
+					depth--;
+					if (depth < 2) {
+						inChannel = false;
+					}
+				} else if (read != -1) {
+					String name = readName(read);
+					if (inChannel && depth == 2 && name.equals("item")) {
+						return start;
+					}
+					if (!skipTag()) {
+						if (depth == 1 && name.equals("channel")) {
+							inChannel = true;
+						}
+						depth++;
+					}
+				}
+			}
+			return end;
+		}
+
+		private int read() throws IOException {
+			int read = in.read();
+			if (read != -1) {
+				position++;
+			}
+			return read;
+		}
+
+		// reads the rest of a tag name and leaves the byte after it unread.
+		private String readName(int first) throws IOException {
+			StringBuilder name = new StringBuilder();
+			if (first != -1) {
+				name.append((char) first);
+			}
+			while (true) {
+				in.mark(1);
+				int read = in.read();
+				if (read == -1 || read == '>' || read == '/' || read <= ' ') {
+					in.reset();
+					return name.toString();
+				}
+				position++;
+				name.append((char) read);
+			}
+		}
+
+		// moves past the end of a tag, ignoring the > in attribute values.
+		// returns true for an empty element tag.
+		private boolean skipTag() throws IOException {
+			int quote = -1;
+			int last = -1;
+			int read;
+			while ((read = read()) != -1) {
+				if (quote != -1) {
+					if (read == quote) {
+						quote = -1;
+					}
+				} else if (read == '"' || read == '\'') {
+					quote = read;
+				} else if (read == '>') {
+					return last == '/';
+				}
+				last = read;
+			}
+			return false;
+		}
+
+		// moves past a comment, a CDATA section or a declaration such as
+		// <!DOCTYPE ...> with its internal subset.
+		private void skipDeclaration() throws IOException {
+			int read = read();
+			if (read == '-') {
+				read();
+				skipPast("-->");
+			} else if (read == '[') {
+				skipPast("]]>");
+			} else {
+				int brackets = 0;
+				while (read != -1 && (read != '>' || brackets > 0)) {
+					if (read == '[') {
+						brackets++;
+					} else if (read == ']') {
+						brackets--;
+					}
+					read = read();
+				}
+			}
+		}
+
+		// moves past the next occurrence of the ascii end.
+		private void skipPast(String end) throws IOException {
+			int[] last = new int[end.length()];
+			int read;
+			while ((read = read()) != -1) {
+				System.arraycopy(last, 1, last, 0, last.length - 1);
+				last[last.length - 1] = read;
+				boolean found = true;
+				for (int i = 0; i < last.length && found; i++) {
+					found = last[i] == end.charAt(i);
+				}
+				if (found) {
+					return;
+				}
+			}
+		}
+	}
+
+	private static boolean matches(byte[] bytes, int offset, byte[] pattern) {
+		for (int i = 0; i < pattern.length; i++) {
+			if (bytes[offset + i] != pattern[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -82,7 +82,8 @@ public class GUID implements Serializable {
 		this.isPermaLink = (isPermaLink == null) ? null : new Attribute(
 				isPermaLink);
 		if (guid == null || guid.equals("")) {
-			throw new RSSpectException("guid SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"guid SHOULD NOT be blank.");
 		}
 		this.guid = guid;
 	}
@@ -106,6 +107,11 @@ public class GUID implements Serializable {
 		return (isPermaLink == null) ? null : new Attribute(isPermaLink);
 	}
 
+	// the isPermaLink attribute without a copy for the RSSWriter.
+	Attribute permaLink() {
+		return isPermaLink;
+	}
+
 	/**
 	 * Shows the contents of the &lt;guid> element.
 	 */
@@ -40,7 +40,8 @@ public class Generator implements Serializable {
 
 	Generator(String generator) throws RSSpectException {
 		if (generator == null || generator.equals("")) {
-			throw new RSSpectException("generator SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"generator SHOULD NOT be blank.");
 		}
 		this.generator = generator;
 	}
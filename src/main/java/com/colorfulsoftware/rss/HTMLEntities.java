@@ -0,0 +1,99 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * <p>
+ * This class contains the named character references of html5 (&amp;nbsp;,
+ * &amp;eacute; etc.) loaded from the entities.properties resource the first
+ * time one is looked up. The names are kept in an open addressing table sized
+ * so that a lookup takes one hash and usually one comparison.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class HTMLEntities {
+
+	private static final String[] names;
+
+	private static final String[] values;
+
+	private static final int mask;
+
+	static {
+		Properties entities = new Properties();
+		try {
+			InputStream in = HTMLEntities.class
+					.getResourceAsStream("entities.properties");
+			if (in == null) {
+				throw new IllegalStateException(
+						"the entities.properties resource is missing.");
+			}
+			try {
+				entities.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"the entities.properties resource cannot be read.", e);
+		}
+		// keep the table at most one quarter full.
+		int size = Integer.highestOneBit(entities.size() * 4 - 1) << 1;
+		names = new String[size];
+		values = new String[size];
+		mask = size - 1;
+		for (Map.Entry<Object, Object> entity : entities.entrySet()) {
+			String name = ((String) entity.getKey()).intern();
+			int slot = slot(name);
+			while (names[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			names[slot] = name;
+			values[slot] = (String) entity.getValue();
+		}
+	}
+
+	private HTMLEntities() {
+	}
+
+	/**
+	 * @param name
+	 *            the name of the entity without the '&amp;' and ';' eg. nbsp
+	 * @return the text of the entity or null if it is not an html entity.
+	 */
+	static String resolve(String name) {
+		for (int slot = slot(name); names[slot] != null; slot = (slot + 1)
+				& mask) {
+			if (names[slot].equals(name)) {
+				return values[slot];
+			}
+		}
+		return null;
+	}
+
+	private static int slot(String name) {
+		int h = name.hashCode();
+		// spread the high bits since the table is indexed by the low ones.
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
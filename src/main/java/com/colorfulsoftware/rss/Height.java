@@ -41,20 +41,24 @@ public class Height implements Serializable {
 
 	private final String height;
 
-	Height(String height) throws RSSpectException {
+	Height(String height, ValidationLevel validation) throws RSSpectException {
 
 		if (height == null || height.equals("")) {
-			throw new RSSpectException("height SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"height SHOULD NOT be blank.");
 		}
 
-		try {
-			int localHeight = Integer.parseInt(height);
-			if (localHeight > 400) {
-				throw new RSSpectException(
-						"height cannot be greater than 400px.");
+		if (validation.checkValues()) {
+			try {
+				int localHeight = Integer.parseInt(height);
+				if (localHeight > 400) {
+					throw new RSSpectException(ErrorCode.INVALID_VALUE,
+							"height cannot be greater than 400px.");
+				}
+			} catch (NumberFormatException n) {
+				throw new RSSpectException(ErrorCode.INVALID_VALUE,
+						"invalid number format for height.");
 			}
-		} catch (NumberFormatException n) {
-			throw new RSSpectException("invalid number format for height.");
 		}
 
 		this.height = height;
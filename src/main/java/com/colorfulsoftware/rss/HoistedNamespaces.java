@@ -0,0 +1,171 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+/**
+ * <p>
+ * This class is used by the RSSWriter to declare the namespaces of the
+ * extensions once on the rss element instead of on each extension element.
+ * The namespaces declared on the rss element are kept and every other
+ * namespace gets the prefix of the first extension that uses it, or a
+ * numbered prefix if that one is already taken. Extensions of one namespace
+ * written with different prefixes are all written with the hoisted prefix.
+ * </p>
+ * <p>
+ * Extensions that are copied as they were read, written by an
+ * ExtensionHandler, in the default namespace or without a known namespace
+ * are written with their own declarations, as are extensions whose
+ * attributes use a prefix that would be renamed.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class HoistedNamespaces {
+
+	// the hoisted prefix of each namespace uri.
+	private final Map<String, String> prefixes = new HashMap<String, String>();
+
+	// the namespace uri of each prefix declared on the rss element.
+	private final Map<String, String> uris = new HashMap<String, String>();
+
+	// the declarations to add to the rss element in document order.
+	private final Map<String, String> added = new LinkedHashMap<String, String>();
+
+	/**
+	 * @param attributes
+	 *            the attributes of the rss element.
+	 */
+	HoistedNamespaces(List<Attribute> attributes) {
+		if (attributes != null) {
+			for (Attribute attr : attributes) {
+				if (attr.getName().startsWith("xmlns:")) {
+					declare(attr.getName().substring(6), attr.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param extensions
+	 *            the extensions to hoist the namespaces of or null.
+	 */
+	void add(List<Extension> extensions) {
+		if (extensions == null) {
+			return;
+		}
+		for (Extension extension : extensions) {
+			QName qName = extension.getQName();
+			String namespaceURI = qName.getNamespaceURI();
+			if (!isHoistable(extension) || prefixes.containsKey(namespaceURI)) {
+				continue;
+			}
+			String prefix = qName.getPrefix();
+			if (uris.containsKey(prefix)) {
+				if (usesPrefix(extension, prefix)) {
+					// the element keeps its own declaration.
+					continue;
+				}
+				int suffix = 2;
+				while (uris.containsKey(qName.getPrefix() + suffix)) {
+					suffix++;
+				}
+				prefix = qName.getPrefix() + suffix;
+			}
+			declare(prefix, namespaceURI);
+			added.put(prefix, namespaceURI);
+		}
+	}
+
+	/**
+	 * @return the declarations to add to the rss element by prefix.
+	 */
+	Map<String, String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @param extension
+	 *            the extension to write.
+	 * @return the prefix to write the extension with or null if it is written
+	 *         with its own prefix and declarations.
+	 */
+	String prefix(Extension extension) {
+		if (!isHoistable(extension)) {
+			return null;
+		}
+		QName qName = extension.getQName();
+		String prefix = prefixes.get(qName.getNamespaceURI());
+		if (prefix == null
+				|| (!prefix.equals(qName.getPrefix()) && usesPrefix(extension,
+						qName.getPrefix()))) {
+			return null;
+		}
+		return prefix;
+	}
+
+	/**
+	 * @param extension
+	 *            an extension that is written with a hoisted prefix.
+	 * @param attr
+	 *            one of its attributes.
+	 * @return true if the attribute is a namespace declaration the element no
+	 *         longer needs.
+	 */
+	boolean isRedundant(Extension extension, Attribute attr) {
+		if (!attr.getName().startsWith("xmlns:")) {
+			return false;
+		}
+		String prefix = attr.getName().substring(6);
+		QName qName = extension.getQName();
+		return attr.getValue().equals(uris.get(prefix))
+				|| (prefix.equals(qName.getPrefix()) && attr.getValue().equals(
+						qName.getNamespaceURI()));
+	}
+
+	private void declare(String prefix, String namespaceURI) {
+		uris.put(prefix, namespaceURI);
+		if (!prefixes.containsKey(namespaceURI)) {
+			prefixes.put(namespaceURI, prefix);
+		}
+	}
+
+	private static boolean isHoistable(Extension extension) {
+		QName qName = extension.getQName();
+		return extension.raw() == null && extension.getValue() == null
+				&& qName.getPrefix().length() > 0
+				&& qName.getNamespaceURI().length() > 0;
+	}
+
+	// true if an attribute other than the declaration uses the prefix.
+	private static boolean usesPrefix(Extension extension, String prefix) {
+		if (extension.attributes() != null) {
+			for (Attribute attr : extension.attributes()) {
+				if (attr.getName().startsWith(prefix + ":")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
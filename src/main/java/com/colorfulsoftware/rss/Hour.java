@@ -39,20 +39,24 @@ public class Hour implements Serializable {
 
 	private final String hour;
 
-	Hour(String hour) throws RSSpectException {
+	Hour(String hour, ValidationLevel validation) throws RSSpectException {
 
 		if (hour == null || hour.equals("")) {
-			throw new RSSpectException("hour SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"hour SHOULD NOT be blank.");
 		}
 
-		try {
-			int localHour = Integer.parseInt(hour);
-			if (localHour > 23 || localHour < 0) {
-				throw new RSSpectException(
-						"hour elements must be between 0 and 23 inclusive.");
+		if (validation.checkValues()) {
+			try {
+				int localHour = Integer.parseInt(hour);
+				if (localHour > 23 || localHour < 0) {
+					throw new RSSpectException(ErrorCode.INVALID_VALUE,
+							"hour elements must be between 0 and 23 inclusive.");
+				}
+			} catch (NumberFormatException n) {
+				throw new RSSpectException(ErrorCode.INVALID_VALUE,
+						"invalid number format for hour.");
 			}
-		} catch (NumberFormatException n) {
-			throw new RSSpectException("invalid number format for hour.");
 		}
 
 		this.hour = hour;
@@ -92,21 +92,21 @@ public class Image implements Serializable {
 			Description description) throws RSSpectException {
 		// make sure id is present
 		if (url == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"image elements MUST contain a url element.");
 		}
 		this.url = new URL(url);
 
 		// make sure title is present
 		if (title == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"image elements MUST contain a title element.");
 		}
 		this.title = new Title(title.getTitle());
 
 		// make sure updated is present
 		if (link == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"image elements MUST contain a link element.");
 		}
 		this.link = new Link(link);
@@ -114,7 +114,7 @@ public class Image implements Serializable {
 		this.width = (width == null) ? null : new Width(width);
 		this.height = (height == null) ? null : new Height(height);
 		this.description = (description == null) ? null : new Description(
-				description.getDescription());
+				description);
 	}
 
 	Image(Image image) {
@@ -166,8 +166,7 @@ public class Image implements Serializable {
 	 * @return the description element.
 	 */
 	public Description getDescription() {
-		return (description == null) ? null : new Description(description
-				.getDescription());
+		return (description == null) ? null : new Description(description);
 	}
 
 	/**
@@ -0,0 +1,298 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * <p>
+ * This class is used by the RSSDoc to pretty print documents. It wraps
+ * another XMLStreamWriter and writes a new line and the indent of the current
+ * depth before each start tag, and before each end tag of an element that
+ * contains other elements. Elements with text stay on one line and nothing is
+ * added to mixed content so the text of the document is not changed.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+class IndentingStreamWriter implements XMLStreamWriter {
+
+	// what has been written in the scope of an open element.
+	private static final int WROTE_MARKUP = 1;
+	private static final int WROTE_DATA = 2;
+
+	private final XMLStreamWriter writer;
+
+	private final String indent;
+
+	private final String newLine;
+
+	// the new line and the indents for each depth, built as they are needed.
+	private String[] indents = new String[16];
+
+	private int[] state = new int[16];
+
+	private int depth = 0;
+
+	IndentingStreamWriter(XMLStreamWriter writer, String indent, String newLine) {
+		this.writer = writer;
+		this.indent = (indent == null) ? "" : indent;
+		this.newLine = (newLine == null) ? "\n" : newLine;
+	}
+
+	public void writeStartDocument() throws XMLStreamException {
+		beforeMarkup();
+		writer.writeStartDocument();
+		afterMarkup();
+	}
+
+	public void writeStartDocument(String version) throws XMLStreamException {
+		beforeMarkup();
+		writer.writeStartDocument(version);
+		afterMarkup();
+	}
+
+	public void writeStartDocument(String encoding, String version)
+			throws XMLStreamException {
+		beforeMarkup();
+		writer.writeStartDocument(encoding, version);
+		afterMarkup();
+	}
+
+	public void writeEndDocument() throws XMLStreamException {
+		while (depth > 0) {
+			writeEndElement();
+		}
+		writer.writeEndDocument();
+	}
+
+	public void writeProcessingInstruction(String target)
+			throws XMLStreamException {
+		beforeMarkup();
+		writer.writeProcessingInstruction(target);
+		afterMarkup();
+	}
+
+	public void writeProcessingInstruction(String target, String data)
+			throws XMLStreamException {
+		beforeMarkup();
+		writer.writeProcessingInstruction(target, data);
+		afterMarkup();
+	}
+
+	public void writeDTD(String dtd) throws XMLStreamException {
+		beforeMarkup();
+		writer.writeDTD(dtd);
+		afterMarkup();
+	}
+
+	public void writeComment(String data) throws XMLStreamException {
+		beforeMarkup();
+		writer.writeComment(data);
+		afterMarkup();
+	}
+
+	public void writeStartElement(String localName) throws XMLStreamException {
+		beforeStartElement();
+		writer.writeStartElement(localName);
+		afterStartElement();
+	}
+
+	public void writeStartElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		beforeStartElement();
+		writer.writeStartElement(namespaceURI, localName);
+		afterStartElement();
+	}
+
+	public void writeStartElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		beforeStartElement();
+		writer.writeStartElement(prefix, localName, namespaceURI);
+		afterStartElement();
+	}
+
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		beforeMarkup();
+		writer.writeEmptyElement(localName);
+		afterMarkup();
+	}
+
+	public void writeEmptyElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		beforeMarkup();
+		writer.writeEmptyElement(namespaceURI, localName);
+		afterMarkup();
+	}
+
+	public void writeEmptyElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		beforeMarkup();
+		writer.writeEmptyElement(prefix, localName, namespaceURI);
+		afterMarkup();
+	}
+
+	public void writeEndElement() throws XMLStreamException {
+		// only elements that contain nothing but elements get a new line.
+		if (depth > 0 && state[depth] == WROTE_MARKUP) {
+			writeNewLine(depth - 1);
+		}
+		writer.writeEndElement();
+		if (depth > 0) {
+			depth--;
+		}
+	}
+
+	public void writeAttribute(String localName, String value)
+			throws XMLStreamException {
+		writer.writeAttribute(localName, value);
+	}
+
+	public void writeAttribute(String namespaceURI, String localName,
+			String value) throws XMLStreamException {
+		writer.writeAttribute(namespaceURI, localName, value);
+	}
+
+	public void writeAttribute(String prefix, String namespaceURI,
+			String localName, String value) throws XMLStreamException {
+		writer.writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	public void writeNamespace(String prefix, String namespaceURI)
+			throws XMLStreamException {
+		writer.writeNamespace(prefix, namespaceURI);
+	}
+
+	public void writeDefaultNamespace(String namespaceURI)
+			throws XMLStreamException {
+		writer.writeDefaultNamespace(namespaceURI);
+	}
+
+	public void writeCharacters(String text) throws XMLStreamException {
+		writer.writeCharacters(text);
+		afterData();
+	}
+
+	public void writeCharacters(char[] text, int start, int len)
+			throws XMLStreamException {
+		writer.writeCharacters(text, start, len);
+		afterData();
+	}
+
+	public void writeCData(String data) throws XMLStreamException {
+		writer.writeCData(data);
+		afterData();
+	}
+
+	public void writeEntityRef(String name) throws XMLStreamException {
+		writer.writeEntityRef(name);
+		afterData();
+	}
+
+	public String getPrefix(String uri) throws XMLStreamException {
+		return writer.getPrefix(uri);
+	}
+
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		writer.setPrefix(prefix, uri);
+	}
+
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		writer.setDefaultNamespace(uri);
+	}
+
+	public void setNamespaceContext(NamespaceContext context)
+			throws XMLStreamException {
+		writer.setNamespaceContext(context);
+	}
+
+	public NamespaceContext getNamespaceContext() {
+		return writer.getNamespaceContext();
+	}
+
+	public Object getProperty(String name) throws IllegalArgumentException {
+		return writer.getProperty(name);
+	}
+
+	public void flush() throws XMLStreamException {
+		writer.flush();
+	}
+
+	public void close() throws XMLStreamException {
+		writer.close();
+	}
+
+	/**
+	 * writes preserved markup on a line of its own without indenting the
+	 * elements inside it.
+	 */
+	void writeRaw(String markup) throws Exception {
+		beforeMarkup();
+		RSSWriter.writeRaw(writer, markup);
+		afterMarkup();
+	}
+
+	// indent unless the current element contains text or this is the very
+	// start of the document.
+	private void beforeMarkup() throws XMLStreamException {
+		int soFar = state[depth];
+		if ((soFar & WROTE_DATA) == 0 && (depth > 0 || soFar != 0)) {
+			writeNewLine(depth);
+		}
+	}
+
+	private void afterMarkup() {
+		state[depth] |= WROTE_MARKUP;
+	}
+
+	private void afterData() {
+		state[depth] |= WROTE_DATA;
+	}
+
+	private void beforeStartElement() throws XMLStreamException {
+		beforeMarkup();
+		if (depth + 1 == state.length) {
+			int[] grown = new int[state.length * 2];
+			System.arraycopy(state, 0, grown, 0, state.length);
+			state = grown;
+		}
+		state[depth + 1] = 0;
+	}
+
+	private void afterStartElement() {
+		afterMarkup();
+		depth++;
+	}
+
+	private void writeNewLine(int level) throws XMLStreamException {
+		if (level >= indents.length) {
+			String[] grown = new String[Math.max(indents.length * 2, level + 1)];
+			System.arraycopy(indents, 0, grown, 0, indents.length);
+			indents = grown;
+		}
+		if (indents[level] == null) {
+			StringBuilder sb = new StringBuilder(newLine);
+			for (int i = 0; i < level; i++) {
+				sb.append(indent);
+			}
+			indents[level] = sb.toString();
+		}
+		writer.writeCharacters(indents[level]);
+	}
+}
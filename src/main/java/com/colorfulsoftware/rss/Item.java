@@ -15,9 +15,14 @@
  */
 package com.colorfulsoftware.rss;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
 
 /**
  * <p>
@@ -72,7 +77,21 @@ public class Item implements Serializable {
 
 	private final List<Extension> extensions;
 
-	private List<String> unboundPrefixes;
+	// the extensions by name and namespace, built when first needed.
+	private transient volatile ExtensionIndex extensionIndex;
+
+	// the utf-8 bytes of the item kept by the RSSWriter. The copies of an item
+	// share them since they write the same bytes.
+	private final transient AtomicReference<Fragment> fragment;
+
+	// the plain text teaser of the description, shared by the copies of the
+	// item as well.
+	private final transient AtomicReference<String> snippet;
+
+	/**
+	 * the length of the snippet returned by getSnippet().
+	 */
+	public static final int SNIPPET_LENGTH = 200;
 
 	Item(Title title, Link link, Description description, Author author,
 			List<Category> categories, Comments comments, Enclosure enclosure,
@@ -81,7 +100,7 @@ public class Item implements Serializable {
 
 		// make sure title or description is present
 		if (title == null && description == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"item elements MUST contain either a title or description element.");
 		}
 		this.title = (title == null) ? null : new Title(title.getTitle());
@@ -89,7 +108,7 @@ public class Item implements Serializable {
 		this.link = (link == null) ? null : new Link(link);
 
 		this.description = (description == null) ? null : new Description(
-				description.getDescription());
+				description);
 
 		this.author = (author == null) ? null : new Author(author.getAuthor());
 
@@ -115,26 +134,17 @@ public class Item implements Serializable {
 
 		this.source = (source == null) ? null : new Source(source);
 
-		// check that the extension prefixes are bound to a namespace
-		this.unboundPrefixes = new LinkedList<String>();
-
 		if (extensions == null) {
 			this.extensions = null;
 		} else {
 			this.extensions = new LinkedList<Extension>();
-
 			for (Extension extension : extensions) {
-				// check that the extension prefix is bound to a namespace
-				String namespacePrefix = extension.getNamespacePrefix();
-				if (namespacePrefix != null) {
-					this.unboundPrefixes.add(namespacePrefix);
-				}
 				this.extensions.add(new Extension(extension));
 			}
 		}
 
-		this.unboundPrefixes = (this.unboundPrefixes.size() == 0) ? null
-				: this.unboundPrefixes;
+		this.fragment = new AtomicReference<Fragment>();
+		this.snippet = new AtomicReference<String>();
 	}
 
 	Item(Item item) {
@@ -149,6 +159,81 @@ public class Item implements Serializable {
 		this.pubDate = item.getPubDate();
 		this.source = item.getSource();
 		this.extensions = item.getExtensions();
+		this.extensionIndex = item.extensionIndex;
+		this.fragment = item.fragment;
+		this.snippet = item.snippet;
+	}
+
+	// the bytes written for one writer configuration.
+	private static final class Fragment {
+		private final Object key;
+		private final byte[] bytes;
+
+		private Fragment(Object key, byte[] bytes) {
+			this.key = key;
+			this.bytes = bytes;
+		}
+	}
+
+	// the cached utf-8 bytes of the item or null if it has not been written
+	// yet with the writer configuration of the key.
+	byte[] getFragment(Object key) {
+		Fragment cached = (fragment == null) ? null : fragment.get();
+		return (cached == null || cached.key != key) ? null : cached.bytes;
+	}
+
+	void setFragment(Object key, byte[] bytes) {
+		// the cache does not survive serialization.
+		if (fragment != null) {
+			fragment.set(new Fragment(key, bytes));
+		}
+	}
+
+	/**
+	 * @return a plain text teaser of the description of up to
+	 *         SNIPPET_LENGTH characters, or null if there is no description.
+	 *         The html is removed, entities are decoded, whitespace is
+	 *         collapsed and longer text is cut on a word boundary and ends in
+	 *         "...". It is worked out the first time it is asked for and kept
+	 *         with the item and its copies.
+	 */
+	public String getSnippet() {
+		if (description == null) {
+			return null;
+		}
+		String teaser = (snippet == null) ? null : snippet.get();
+		if (teaser == null) {
+			teaser = getSnippet(SNIPPET_LENGTH);
+			// the snippet does not survive serialization.
+			if (snippet != null) {
+				snippet.set(teaser);
+			}
+		}
+		return teaser;
+	}
+
+	/**
+	 * @param maxLength
+	 *            the maximum length of the snippet without the trailing
+	 *            "...".
+	 * @return a plain text teaser of the description like getSnippet() that
+	 *         is worked out on each call, or null if there is no description.
+	 */
+	public String getSnippet(int maxLength) {
+		if (description == null) {
+			return null;
+		}
+		try {
+			Reader reader = description.getReader();
+			try {
+				return Snippet.extract(reader, maxLength);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"the description cannot be read.", e);
+		}
 	}
 
 	/**
@@ -162,8 +247,7 @@ public class Item implements Serializable {
 	 * @return the description object.
 	 */
 	public Description getDescription() {
-		return (description == null) ? null : new Description(description
-				.getDescription());
+		return (description == null) ? null : new Description(description);
 	}
 
 	/**
@@ -269,14 +353,97 @@ public class Item implements Serializable {
 	 * @return the extension matching the element or null if not found.
 	 */
 	public Extension getExtension(String extName) {
-		if (this.extensions != null) {
-			for (Extension extension : this.extensions) {
-				if (extension.getElementName().equals(extName)) {
-					return new Extension(extension);
-				}
-			}
+		Extension extension = extensionIndex().get(extName);
+		return (extension == null) ? null : new Extension(extension);
+	}
+
+	/**
+	 * @param qName
+	 *            the qualified name of the extension. Only the namespace and
+	 *            the local part are compared so the prefix the document used
+	 *            does not matter.
+	 * @return the first extension matching the name or null if not found.
+	 */
+	public Extension getExtension(QName qName) {
+		List<Extension> found = extensionIndex().get(qName);
+		return found.isEmpty() ? null : new Extension(found.get(0));
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extension eg.
+	 *            http://search.yahoo.com/mrss/
+	 * @param localName
+	 *            the element name without the prefix eg. "content"
+	 * @return an unmodifiable list of the matching extensions in document
+	 *         order, whatever prefix they were written with. The list is
+	 *         empty if there are none.
+	 */
+	public List<Extension> getExtensions(String namespaceURI, String localName) {
+		return extensionIndex().get(namespaceURI, localName);
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extensions.
+	 * @return an unmodifiable list of the extensions of the namespace in
+	 *         document order. The list is empty if there are none.
+	 */
+	public List<Extension> getExtensionsByNamespace(String namespaceURI) {
+		return extensionIndex().getByNamespace(namespaceURI);
+	}
+
+	private ExtensionIndex extensionIndex() {
+		ExtensionIndex index = extensionIndex;
+		if (index == null) {
+			extensionIndex = index = ExtensionIndex.build(extensions);
 		}
-		return null;
+		return index;
+	}
+
+	// the RSSWriter reads the item through these without copying it.
+	Title title() {
+		return title;
+	}
+
+	Description description() {
+		return description;
+	}
+
+	Link link() {
+		return link;
+	}
+
+	Author author() {
+		return author;
+	}
+
+	List<Category> categories() {
+		return categories;
+	}
+
+	Comments comments() {
+		return comments;
+	}
+
+	Enclosure enclosure() {
+		return enclosure;
+	}
+
+	GUID guid() {
+		return guid;
+	}
+
+	PubDate pubDate() {
+		return pubDate;
+	}
+
+	Source source() {
+		return source;
+	}
+
+	List<Extension> extensions() {
+		return extensions;
 	}
 
 	/**
@@ -338,10 +505,6 @@ public class Item implements Serializable {
 		return sb.toString();
 	}
 
-	List<String> getUnboundPrefixes() {
-		return unboundPrefixes;
-	}
-	
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this) {
@@ -46,7 +46,8 @@ public class Language implements Serializable {
 
 	Language(String language) throws RSSpectException {
 		if (language == null || language.equals("")) {
-			throw new RSSpectException("language SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"language SHOULD NOT be blank.");
 		}
 		this.language = language;
 	}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * This class is used by the RSSReader to stop reading once a document is
+ * larger than ReaderLimits.getMaxBytes().
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+class LimitedInputStream extends FilterInputStream {
+
+	private final long maxBytes;
+	private long count = 0;
+	private boolean exceeded = false;
+
+	LimitedInputStream(InputStream in, long maxBytes) {
+		super(in);
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int read = super.read();
+		if (read != -1) {
+			count(1);
+		}
+		return read;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0) {
+			count(read);
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * @return true if the limit was crossed.
+	 */
+	boolean isExceeded() {
+		return exceeded;
+	}
+
+	private void count(long read) throws IOException {
+		count += read;
+		if (count > maxBytes) {
+			exceeded = true;
+			throw new IOException("the document is larger than the limit of "
+					+ maxBytes + " bytes.");
+		}
+	}
+}
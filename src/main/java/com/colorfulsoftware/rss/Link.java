@@ -45,19 +45,21 @@ public class Link implements Serializable {
 
 	private final String link;
 
-	Link(String link) throws RSSpectException {
+	Link(String link, ValidationLevel validation) throws RSSpectException {
 
 		if (link == null || link.equals("")) {
-			throw new RSSpectException("link SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"link SHOULD NOT be blank.");
 		}
 
 		String linkLocal = link.trim();
-		if (linkLocal.length() > 0
-				&& new URIScheme().contains(linkLocal.substring(0, linkLocal
-						.indexOf(":")))) {
+		if (!validation.checkValues()
+				|| (linkLocal.length() > 0 && URIScheme.contains(linkLocal
+						.substring(0, linkLocal.indexOf(":"))))) {
 			this.link = link;
 		} else {
-			throw new RSSpectException("link elements must start with a valid "
+			throw new RSSpectException(ErrorCode.INVALID_VALUE,
+					"link elements must start with a valid "
 					+ "Uniform Resource Identifer (URI) Schemes.  "
 					+ "See http://www.iana.org. Yours started with: '" + link
 					+ "'");
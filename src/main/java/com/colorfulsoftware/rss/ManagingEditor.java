@@ -40,7 +40,8 @@ public class ManagingEditor implements Serializable {
 
 	ManagingEditor(String managingEditor) throws RSSpectException {
 		if (managingEditor == null || managingEditor.equals("")) {
-			throw new RSSpectException("managingEditor SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"managingEditor SHOULD NOT be blank.");
 		}
 		this.managingEditor = managingEditor;
 	}
@@ -40,7 +40,8 @@ public class Name implements Serializable {
 
 	Name(String name) throws RSSpectException {
 		if (name == null || name.equals("")) {
-			throw new RSSpectException("name SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"name SHOULD NOT be blank.");
 		}
 		this.name = name;
 	}
@@ -16,8 +16,12 @@
 package com.colorfulsoftware.rss;
 
 import java.io.Serializable;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
 
 /**
  * <p>
@@ -75,19 +79,22 @@ public class RSS implements Serializable {
 	private final Channel channel;
 	private final List<Attribute> attributes;
 	private final List<Extension> extensions;
-	private List<String> unboundPrefixes;
 
-	RSS(Channel channel, List<Attribute> attributes, List<Extension> extensions)
+	// the extensions by name and namespace, built when first needed.
+	private transient volatile ExtensionIndex extensionIndex;
+
+	RSS(Channel channel, List<Attribute> attributes,
+			List<Extension> extensions, ValidationLevel validation)
 			throws RSSpectException {
 		if (channel == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"rss elements MUST contain a channel element.");
 		}
 
 		this.channel = new Channel(channel);
 
 		if (attributes == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
 					"RSS elements must contain a version attribute.");
 		} else {
 			this.attributes = new LinkedList<Attribute>();
@@ -101,52 +108,65 @@ public class RSS implements Serializable {
 				}
 			}
 
-			if (!containsVersion) {
-				throw new RSSpectException(
+			if (!containsVersion && validation.checkStructure()) {
+				throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
 						"RSS elements must contain a version attribute.");
 			}
 		}
 
-		// check that all extension prefixes are bound to a namespace
-		this.unboundPrefixes = new LinkedList<String>();
-
-		if (this.channel.getUnboundPrefixes() != null) {
-			for (String unboundPrefix : this.channel.getUnboundPrefixes()) {
-				if (getAttribute("xmlns:" + unboundPrefix) == null) {
-					this.unboundPrefixes.add(unboundPrefix);
-				}
-			}
-		}
-
 		if (extensions == null) {
 			this.extensions = null;
 		} else {
 			this.extensions = new LinkedList<Extension>();
 			for (Extension extension : extensions) {
-				// check that the extension prefix is bound to a namespace
-				String namespacePrefix = extension.getNamespacePrefix();
-				if (namespacePrefix != null) {
-					if (getAttribute("xmlns:" + namespacePrefix) == null) {
-						this.unboundPrefixes.add(namespacePrefix);
-					}
-				}
 				this.extensions.add(new Extension(extension));
 			}
 		}
 
+		// check that all extension prefixes are bound to a namespace. The
+		// readers resolve the namespace of every extension against the
+		// namespace context while parsing, so only the extensions that were
+		// built without a declaration of their own are looked up here.
+		Set<String> unboundPrefixes = null;
+		if (validation.checkStructure()) {
+			unboundPrefixes = new LinkedHashSet<String>();
+			if (this.channel.items() != null) {
+				for (Item item : this.channel.items()) {
+					addUnboundPrefixes(item.extensions(), unboundPrefixes);
+				}
+			}
+			addUnboundPrefixes(this.channel.extensions(), unboundPrefixes);
+			addUnboundPrefixes(this.extensions, unboundPrefixes);
+		}
+
 		// if there are any unbound prefixes, throw an exception
-		if (this.unboundPrefixes.size() > 0) {
+		if (unboundPrefixes != null && unboundPrefixes.size() > 0) {
 			StringBuilder sb = new StringBuilder();
-			for (String namePrefix : this.unboundPrefixes) {
+			for (String namePrefix : unboundPrefixes) {
 				sb.append(namePrefix + " ");
 			}
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.UNBOUND_PREFIX,
 					"the following extension prefix(es) ( "
 							+ sb
 							+ ") are not bound to a namespace declaration. See http://www.w3.org/TR/1999/REC-xml-names-19990114/#ns-decl.");
 		}
 	}
 
+	private void addUnboundPrefixes(List<Extension> extensions,
+			Set<String> unboundPrefixes) {
+		if (extensions != null) {
+			for (Extension extension : extensions) {
+				if (extension.getNamespaceURI() == null) {
+					String prefix = extension.getQName().getPrefix();
+					if (prefix.length() > 0
+							&& getAttribute("xmlns:" + prefix) == null) {
+						unboundPrefixes.add(prefix);
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * @return the channel object.
 	 */
@@ -205,14 +225,65 @@ public class RSS implements Serializable {
 	 * @return the extension matching the element or null if not found.
 	 */
 	public Extension getExtension(String extName) {
-		if (this.extensions != null) {
-			for (Extension extension : this.extensions) {
-				if (extension.getElementName().equals(extName)) {
-					return new Extension(extension);
-				}
-			}
+		Extension extension = extensionIndex().get(extName);
+		return (extension == null) ? null : new Extension(extension);
+	}
+
+	/**
+	 * @param qName
+	 *            the qualified name of the extension. Only the namespace and
+	 *            the local part are compared so the prefix the document used
+	 *            does not matter.
+	 * @return the first extension matching the name or null if not found.
+	 */
+	public Extension getExtension(QName qName) {
+		List<Extension> found = extensionIndex().get(qName);
+		return found.isEmpty() ? null : new Extension(found.get(0));
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extension eg.
+	 *            http://search.yahoo.com/mrss/
+	 * @param localName
+	 *            the element name without the prefix eg. "content"
+	 * @return an unmodifiable list of the matching extensions in document
+	 *         order, whatever prefix they were written with. The list is
+	 *         empty if there are none.
+	 */
+	public List<Extension> getExtensions(String namespaceURI, String localName) {
+		return extensionIndex().get(namespaceURI, localName);
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extensions.
+	 * @return an unmodifiable list of the extensions of the namespace in
+	 *         document order. The list is empty if there are none.
+	 */
+	public List<Extension> getExtensionsByNamespace(String namespaceURI) {
+		return extensionIndex().getByNamespace(namespaceURI);
+	}
+
+	private ExtensionIndex extensionIndex() {
+		ExtensionIndex index = extensionIndex;
+		if (index == null) {
+			extensionIndex = index = ExtensionIndex.build(extensions);
 		}
-		return null;
+		return index;
+	}
+
+	// the RSSWriter reads the rss element through these without copying it.
+	Channel channel() {
+		return channel;
+	}
+
+	List<Attribute> attributes() {
+		return attributes;
+	}
+
+	List<Extension> extensions() {
+		return extensions;
 	}
 
 	/**
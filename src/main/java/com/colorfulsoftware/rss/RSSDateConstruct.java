@@ -40,7 +40,7 @@ class RSSDateConstruct implements Serializable {
 	RSSDateConstruct(String dateTime) throws RSSpectException {
 
 		if (dateTime == null || dateTime.trim().equals("")) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
 					"the date for this element SHOULD NOT be blank.");
 		}
 
@@ -77,7 +77,7 @@ class RSSDateConstruct implements Serializable {
 		}
 
 		if (!valid) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.INVALID_DATE,
 					"Error trying to parse a date in RFC 822 format for: '"
 							+ dateTime + "'");
 		}
@@ -16,16 +16,24 @@
 package com.colorfulsoftware.rss;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
@@ -54,6 +62,9 @@ import javax.xml.stream.XMLStreamWriter;
  * <li>Read an RSS bean into a formatted String.<br />
  * <code style="margin-left:20px;padding-bottom:10px;font-style: italic;">String myRssStr = new RSSDoc().readRSSToString(myRSS, "javanet.staxutils.IndentingXMLStreamWriter");</code>
  * </li>
+ * <li>Read an RSS bean into an indented String without any other libraries.<br />
+ * <code style="margin-left:20px;padding-bottom:10px;font-style: italic;">String myRssStr = new RSSDoc().readRSSToString(myRSS, "  ", "\n");</code>
+ * </li>
  * <li>Write an RSS bean to disk.<br />
  * <code style="margin-left:20px;padding-bottom:10px;font-style: italic;">String myRssStr = new RSSDoc().writeRSSDoc(new File("/somewhere/myRSS.xml"), myRSS, "UTF-8", "1.0");</code>
  * </li>
@@ -86,6 +97,45 @@ public final class RSSDoc implements Serializable {
 
 	private List<ProcessingInstruction> processingInstructions;
 
+	private ValidationLevel validationLevel = ValidationLevel.STRICT;
+
+	private boolean stacklessExceptions;
+
+	private ReaderLimits readerLimits;
+
+	private boolean cachingItems;
+
+	private boolean preservingExtensions;
+
+	private boolean resolvingHTMLEntities;
+
+	private boolean hoistingNamespaces;
+
+	private int spillThreshold;
+
+	private XHTMLFilter xhtmlFilter;
+
+	private File spillDirectory;
+
+	private String indent;
+
+	private String newLine = "\n";
+
+	private int maxItems;
+
+	private Date itemCutoff;
+
+	private Generator generator;
+
+	private transient ExecutorService writerExecutor;
+
+	private transient Map<String, ExtensionHandler> extensionHandlers;
+
+	// identifies the handlers the cached item bytes were written with.
+	private static final Object NO_HANDLERS = new Object();
+
+	private transient Object handlersKey;
+
 	/**
 	 * @throws Exception
 	 *             if the rsspect.properties file cant be read.
@@ -98,6 +148,7 @@ public final class RSSDoc implements Serializable {
 		String libVersionStr = props.getProperty("version");
 
 		libVersion = new Generator(libUri + " v" + libVersionStr);
+		generator = libVersion;
 		inputFactory = XMLInputFactory.newInstance();
 		// this is done to help for parsing documents that have undeclared and
 		// unescaped html or xhtml entities.
@@ -167,12 +218,80 @@ public final class RSSDoc implements Serializable {
 	 */
 	public void writeRSSDoc(OutputStream output, RSS rss, String encoding,
 			String version) throws Exception {
-		writeRSSOutput(rss, XMLOutputFactory.newInstance()
-				.createXMLStreamWriter(output, encoding), encoding, version);
+		writeRSSOutput(rss, createXMLStreamWriter(output, encoding), encoding,
+				version);
+
+	}
 
+	/**
+	 * Like writeRSSDoc(OutputStream, RSS, String, String) but compresses the
+	 * document as it is written. The output stream is not closed.
+	 * 
+	 * @param output
+	 *            the target output stream for the compressed document.
+	 * @param rss
+	 *            the rss object containing the content of the feed
+	 * @param encoding
+	 *            the file encoding (default is UTF-8)
+	 * @param version
+	 *            the xml version (default is 1.0)
+	 * @param compression
+	 *            GZIP, DEFLATE or NONE (or null) for the plain document.
+	 * @throws Exception
+	 *             thrown if the feed cannot be written to the output
+	 */
+	public void writeRSSDoc(OutputStream output, RSS rss, String encoding,
+			String version, Compression compression) throws Exception {
+		if (compression == null || compression == Compression.NONE) {
+			writeRSSDoc(output, rss, encoding, version);
+			return;
+		}
+		DeflatingOutputStream compressed = new DeflatingOutputStream(output,
+				compression);
+		try {
+			writeRSSDoc(compressed, rss, encoding, version);
+			compressed.finish();
+		} finally {
+			compressed.release();
+		}
+	}
+
+	/**
+	 * Writes the document into memory. The returned RenderedRSS keeps the
+	 * bytes and compresses them at most once for each compression, which
+	 * makes it a good fit for serving the same feed to many clients.
+	 * 
+	 * <pre>
+	 * RenderedRSS rendered = rssDoc.renderRSSDoc(myRSS, &quot;UTF-8&quot;, &quot;1.0&quot;);
+	 * response.setHeader(&quot;Content-Encoding&quot;, Compression.GZIP
+	 * 		.getContentEncoding());
+	 * response.setContentLength(rendered.getLength(Compression.GZIP));
+	 * rendered.writeTo(response.getOutputStream(), Compression.GZIP);
+	 * </pre>
+	 * 
+	 * @param rss
+	 *            the rss object containing the content of the feed
+	 * @param encoding
+	 *            the file encoding (default is UTF-8)
+	 * @param version
+	 *            the xml version (default is 1.0)
+	 * @return the rendered document.
+	 * @throws Exception
+	 *             thrown if the feed cannot be written.
+	 */
+	public RenderedRSS renderRSSDoc(RSS rss, String encoding, String version)
+			throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+		writeRSSDoc(output, rss, encoding, version);
+		return new RenderedRSS(output.toByteArray(), encoding);
 	}
 
 	/**
+	 * The document is written to a temporary file in the same directory,
+	 * forced to disk and then renamed over the target file. Readers of the
+	 * file see either the old or the new document and never a partly written
+	 * one. The rename is atomic on POSIX file systems. On file systems that
+	 * cannot rename over an existing file the old file is deleted first.
 	 * 
 	 * @param file
 	 *            the target output file for the document.
@@ -187,9 +306,178 @@ public final class RSSDoc implements Serializable {
 	 */
 	public void writeRSSDoc(File file, RSS rss, String encoding, String version)
 			throws Exception {
-		writeRSSOutput(rss, XMLOutputFactory.newInstance()
-				.createXMLStreamWriter(new FileOutputStream(file), encoding),
-				encoding, version);
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("." + file.getName() + ".", ".tmp",
+				dir);
+		boolean written = false;
+		try {
+			FileOutputStream output = new FileOutputStream(temp);
+			try {
+				FileChannel channel = output.getChannel();
+				writeRSSDoc(channel, rss, encoding, version);
+				channel.force(true);
+			} finally {
+				output.close();
+			}
+			if (!temp.renameTo(file)) {
+				// windows will not rename over an existing file.
+				if (!file.delete() || !temp.renameTo(file)) {
+					throw new IOException("could not replace " + file);
+				}
+			}
+			written = true;
+			// the item offsets of the old file are no longer valid.
+			FeedFileIndex.getIndexFile(file).delete();
+		} finally {
+			if (!written) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Adds items to the end of the channel of a feed file without reading or
+	 * rewriting the rest of the document. Only the new items and the end tags
+	 * after them are written. The byte offsets of the items are kept in a
+	 * sidecar file (the feed file name plus .idx) which is created by the
+	 * first call. The feed must be a UTF-8 document like the ones written by
+	 * writeRSSDoc(). The channel elements, such as lastBuildDate, are not
+	 * changed and the file is changed in place so readers should not read it
+	 * while items are added.
+	 * 
+	 * @param file
+	 *            the feed file.
+	 * @param items
+	 *            the items to add after the items of the channel.
+	 * @throws Exception
+	 *             thrown if the items cannot be written to the feed.
+	 */
+	public void appendItems(File file, List<Item> items) throws Exception {
+		byte[] bytes = encodeItems(items);
+		FeedFileIndex.load(file).append(bytes);
+	}
+
+	/**
+	 * Like appendItems(File, List) but adds the items in front of the items of
+	 * the channel, as newest first feeds need. The items of the feed are moved
+	 * along in the file to make room for them.
+	 * 
+	 * @param file
+	 *            the feed file.
+	 * @param items
+	 *            the items to add in front of the items of the channel.
+	 * @throws Exception
+	 *             thrown if the items cannot be written to the feed.
+	 */
+	public void prependItems(File file, List<Item> items) throws Exception {
+		byte[] bytes = encodeItems(items);
+		FeedFileIndex.load(file).prepend(bytes);
+	}
+
+	// the items as the UTF-8 bytes the writers would write for them.
+	private byte[] encodeItems(List<Item> items) throws Exception {
+		if (items == null) {
+			throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+					"the items cannot be null.");
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		UTF8StreamWriter writer = new UTF8StreamWriter(bytes);
+		RSSWriter rssWriter = createRSSWriter();
+		for (Item item : items) {
+			if (item == null) {
+				throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+						"items cannot be null.");
+			}
+			rssWriter.writeItem(writer, item);
+		}
+		writer.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the document to a channel eg. a FileChannel or a SocketChannel
+	 * through a reused direct buffer. The channel is not closed or forced.
+	 * 
+	 * @param channel
+	 *            the target channel for the document.
+	 * @param rss
+	 *            the rss object containing the content of the feed
+	 * @param encoding
+	 *            the file encoding (default is UTF-8)
+	 * @param version
+	 *            the xml version (default is 1.0)
+	 * @throws Exception
+	 *             thrown if the feed cannot be written to the output
+	 */
+	public void writeRSSDoc(WritableByteChannel channel, RSS rss,
+			String encoding, String version) throws Exception {
+		ChannelOutputStream output = new ChannelOutputStream(channel);
+		writeRSSDoc(output, rss, encoding, version);
+		output.flush();
+	}
+
+	/**
+	 * This method starts writing an rss document whose items are supplied one
+	 * at a time, so very large feeds can be written without building all of
+	 * their items first. The header is written immediately. For example:
+	 * 
+	 * <pre>
+	 * RSSStreamWriter out = rssDoc.createStreamWriter(output, header, &quot;UTF-8&quot;,
+	 * 		&quot;1.0&quot;);
+	 * while (cursor.next()) {
+	 * 	out.writeItem(rssDoc.buildItem(...));
+	 * }
+	 * out.close();
+	 * </pre>
+	 * 
+	 * @param output
+	 *            the target output stream for the rss document.
+	 * @param header
+	 *            the rss element with its attributes, extensions and channel.
+	 *            Any items in the channel are written before the streamed
+	 *            ones. Build the channel with null items to supply them all
+	 *            through the stream writer.
+	 * @param encoding
+	 *            the file encoding (default is UTF-8)
+	 * @param version
+	 *            the xml version (default is 1.0)
+	 * @return the stream writer to write the items to. It must be closed to
+	 *         finish the document.
+	 * @throws Exception
+	 *             thrown if the header cannot be written to the output
+	 */
+	public RSSStreamWriter createStreamWriter(OutputStream output, RSS header,
+			String encoding, String version) throws Exception {
+		return createStreamWriter(createXMLStreamWriter(output, encoding),
+				header, encoding, version);
+	}
+
+	/**
+	 * Like createStreamWriter(OutputStream, RSS, String, String) but writes to
+	 * the given XMLStreamWriter.
+	 * 
+	 * @param output
+	 *            the target output for the rss document.
+	 * @param header
+	 *            the rss element with its attributes, extensions and channel.
+	 * @param encoding
+	 *            the file encoding (default is UTF-8)
+	 * @param version
+	 *            the xml version (default is 1.0)
+	 * @return the stream writer to write the items to. It must be closed to
+	 *         finish the document.
+	 * @throws Exception
+	 *             thrown if the header cannot be written to the output
+	 */
+	public RSSStreamWriter createStreamWriter(XMLStreamWriter output,
+			RSS header, String encoding, String version) throws Exception {
+		if (header == null) {
+			throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+					"The rss feed object cannot be null.");
+		}
+		output = format(output, indent, newLine);
+		writeStartDocument(output, encoding, version);
+		return new RSSStreamWriter(output, createRSSWriter(), header);
 	}
 
 	/**
@@ -227,7 +515,8 @@ public final class RSSDoc implements Serializable {
 	 * can pass the TXW com.sun.xml.txw2.output.IndentingXMLStreamWriter or the
 	 * stax-utils javanet.staxutils.IndentingXMLStreamWriter for indented
 	 * printing. It will fall back to the feeds' toString() method if the
-	 * xmlStreamWriter is not recognized.
+	 * xmlStreamWriter is not recognized. Use readRSSToString(RSS, String,
+	 * String) for indented printing without reflection.
 	 * 
 	 * if the XMLStreamWriter class cannot be found in the classpath.
 	 * 
@@ -242,7 +531,8 @@ public final class RSSDoc implements Serializable {
 	public String readRSSToString(RSS rss, String xmlStreamWriter)
 			throws Exception {
 		if (rss == null) {
-			throw new RSSpectException("The rss feed object cannot be null.");
+			throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+					"The rss feed object cannot be null.");
 		}
 		try {
 			StringWriter theString = new StringWriter();
@@ -269,6 +559,30 @@ public final class RSSDoc implements Serializable {
 		}
 	}
 
+	/**
+	 * This method returns the rss feed as an indented document string. It
+	 * does not use reflection or another XMLStreamWriter and unlike
+	 * readRSSToString(RSS, String) it does not hide errors.
+	 * 
+	 * @param rss
+	 *            the rss object to be converted to an rss document string.
+	 * @param indent
+	 *            the indent for each level of nesting eg. two spaces or a tab.
+	 * @param newLine
+	 *            the line separator (default is \n)
+	 * @return an indented rss feed document string.
+	 * @throws Exception
+	 *             thrown if the feed cannot be returned as a String
+	 */
+	public String readRSSToString(RSS rss, String indent, String newLine)
+			throws Exception {
+		StringWriter theString = new StringWriter();
+		writeRSSOutput(rss, new IndentingStreamWriter(XMLOutputFactory
+				.newInstance().createXMLStreamWriter(theString), indent,
+				newLine), encoding, xmlVersion);
+		return theString.toString();
+	}
+
 	/**
 	 * This method reads an xml string into a Feed element.
 	 * 
@@ -288,9 +602,8 @@ public final class RSSDoc implements Serializable {
 			encoding = localEncoding;
 
 		}
-		return new RSSReader(this).readRSS(inputFactory
-				.createXMLStreamReader(new ByteArrayInputStream(xmlString
-						.getBytes(encoding))));
+		return readRSS(new ByteArrayInputStream(xmlString.getBytes(encoding)),
+				null);
 	}
 
 	/**
@@ -303,8 +616,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the file cannot be parsed into a RSS element.
 	 */
 	public RSS readRSSToBean(File file) throws Exception {
-		return new RSSReader(this).readRSS(inputFactory
-				.createXMLStreamReader(new FileInputStream(file)));
+		return readRSS(new FileInputStream(file), null);
 	}
 
 	/**
@@ -330,8 +642,76 @@ public final class RSSDoc implements Serializable {
 	 *             if the URL cannot be parsed into a RSS element.
 	 */
 	public RSS readRSSToBean(InputStream inputStream) throws Exception {
-		return new RSSReader(this).readRSS(inputFactory
-				.createXMLStreamReader(inputStream));
+		return readRSS(inputStream, null);
+	}
+
+	/**
+	 * This method reads an rss file from an input stream into a RSS element
+	 * without failing on the first problem. An element that is not valid is
+	 * skipped and recorded in the report, and reading carries on with the
+	 * rest of the document. For example an item with a bad pubDate is kept
+	 * without its pubDate and an item left with neither a title nor a
+	 * description is dropped. Use report.getViolations("/rss/channel/item")
+	 * to find the dropped items.
+	 * 
+	 * @param inputStream
+	 *            the input stream containing an rss file.
+	 * @param report
+	 *            collects the problems found. If null the first problem is
+	 *            thrown like readRSSToBean(InputStream) does.
+	 * @return the RSS element built from the valid parts of the document.
+	 * @throws Exception
+	 *             if the rss or channel element itself is not valid or the
+	 *             document is not well formed xml. The violation that kept
+	 *             the document from being read is thrown in that case and
+	 *             the others are left in the report.
+	 */
+	public RSS readRSSToBean(InputStream inputStream, ValidationReport report)
+			throws Exception {
+		if (report == null) {
+			return readRSSToBean(inputStream);
+		}
+		RSSReader reader = new RSSReader(this, report);
+		RSS recovered = reader.readRSS(inputFactory
+				.createXMLStreamReader(reader.limit(inputStream)));
+		if (recovered == null) {
+			Violation cause = reader.getUnrecoverable();
+			RSSpectException e = new RSSpectException(cause.getErrorCode(),
+					cause.getMessage());
+			e.setContext(cause.getPath() + " at line " + cause.getLineNumber()
+					+ ", column " + cause.getColumnNumber());
+			throw e;
+		}
+		return recovered;
+	}
+
+	/**
+	 * This method checks an rss document from an input stream against the
+	 * current validation level. Instead of stopping at the first problem like
+	 * the readRSSToBean methods do, the whole document is read once and every
+	 * problem is reported with the path, line and column of the offending
+	 * element. Elements containing a problem are skipped so that problems in
+	 * their parent elements are reported as well.
+	 * 
+	 * @param inputStream
+	 *            the input stream containing an rss file.
+	 * @return the report of all the problems found. The report is valid if
+	 *         none were found.
+	 * @throws Exception
+	 *             if the input stream cannot be read.
+	 */
+	public ValidationReport validate(InputStream inputStream) throws Exception {
+		ValidationReport report = new ValidationReport();
+		readRSS(inputStream, report);
+		return report;
+	}
+
+	// used to read rss input for several rss reading methods.
+	private RSS readRSS(InputStream inputStream, ValidationReport report)
+			throws Exception {
+		RSSReader reader = new RSSReader(this, report);
+		return reader.readRSS(inputFactory.createXMLStreamReader(reader
+				.limit(inputStream)));
 	}
 
 	/**
@@ -348,7 +728,7 @@ public final class RSSDoc implements Serializable {
 	 */
 	public RSS buildRSS(Channel channel, List<Attribute> attributes,
 			List<Extension> extensions) throws RSSpectException {
-		return new RSS(channel, attributes, extensions);
+		return new RSS(channel, attributes, extensions, validationLevel);
 	}
 
 	/**
@@ -464,7 +844,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public Cloud buildCloud(List<Attribute> attributes) throws RSSpectException {
-		return new Cloud(attributes);
+		return new Cloud(attributes, validationLevel);
 	}
 
 	/**
@@ -504,6 +884,12 @@ public final class RSSDoc implements Serializable {
 		return new Description(description);
 	}
 
+	// the readers pass text that may have been spilled to a file along.
+	Description buildSpooledDescription(TextSpool description) throws Exception {
+		return description.isSpilled() ? new Description(description
+				.toSpilledText()) : buildDescription(description.toString());
+	}
+
 	/**
 	 * 
 	 * @param docs
@@ -526,7 +912,7 @@ public final class RSSDoc implements Serializable {
 	 */
 	public Enclosure buildEnclosure(List<Attribute> attributes)
 			throws RSSpectException {
-		return new Enclosure(attributes);
+		return new Enclosure(attributes, validationLevel);
 	}
 
 	/**
@@ -543,7 +929,38 @@ public final class RSSDoc implements Serializable {
 	 */
 	public Extension buildExtension(String elementName,
 			List<Attribute> attributes, String content) throws RSSpectException {
-		return new Extension(elementName, attributes, content);
+		return new Extension(elementName, attributes, content,
+				validationLevel);
+	}
+
+	// the readers pass the namespace and the markup of the element along.
+	Extension buildExtension(String namespaceURI, String elementName,
+			List<Attribute> attributes, String content, SpilledText spilled,
+			String raw) throws RSSpectException {
+		return new Extension(namespaceURI, elementName, attributes, content,
+				spilled, null, raw, validationLevel);
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extension element. The ExtensionHandler
+	 *            registered for it writes the element.
+	 * @param elementName
+	 *            the name of the element eg. media:content
+	 * @param attributes
+	 *            the attributes of the element such as namespace
+	 *            declarations.
+	 * @param value
+	 *            the typed value of the extension.
+	 * @return an immutable Extension object.
+	 * @throws RSSpectException
+	 *             if the data is not valid.
+	 */
+	public Extension buildTypedExtension(String namespaceURI,
+			String elementName, List<Attribute> attributes, Object value)
+			throws RSSpectException {
+		return new Extension(namespaceURI, elementName, attributes, null,
+				null, value, null, validationLevel);
 	}
 
 	/**
@@ -581,7 +998,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public Height buildHeight(String height) throws RSSpectException {
-		return new Height(height);
+		return new Height(height, validationLevel);
 	}
 
 	/**
@@ -677,7 +1094,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public Link buildLink(String link) throws RSSpectException {
-		return new Link(link);
+		return new Link(link, validationLevel);
 	}
 
 	/**
@@ -762,7 +1179,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public Day buildDay(String day) throws RSSpectException {
-		return new Day(day);
+		return new Day(day, validationLevel);
 	}
 
 	/**
@@ -773,7 +1190,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public Hour buildHour(String hour) throws RSSpectException {
-		return new Hour(hour);
+		return new Hour(hour, validationLevel);
 	}
 
 	/**
@@ -843,7 +1260,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public URL buildURL(String url) throws RSSpectException {
-		return new URL(url);
+		return new URL(url, validationLevel);
 	}
 
 	/**
@@ -867,7 +1284,7 @@ public final class RSSDoc implements Serializable {
 	 *             if the format of the data is not valid.
 	 */
 	public Width buildWidth(String width) throws RSSpectException {
-		return new Width(width);
+		return new Width(width, validationLevel);
 	}
 
 	// used to write feed output for several feed writing methods.
@@ -875,33 +1292,54 @@ public final class RSSDoc implements Serializable {
 			String encoding, String version) throws Exception {
 
 		if (rss == null) {
-			throw new RSSpectException("The rss feed object cannot be null.");
+			throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+					"The rss feed object cannot be null.");
 		}
 
-		Channel channel = rss.getChannel();
+		writer = format(writer, indent, newLine);
+		writeStartDocument(writer, encoding, version);
+
+		// the rss is immutable so it is written as it is. the writer puts the
+		// generator in place of the one of the channel.
+		createRSSWriter().writeRSS(writer, rss);
+		writer.flush();
+		writer.close();
+	}
+
+	// a writer with the output options of this document.
+	private RSSWriter createRSSWriter() {
+		return new RSSWriter(this);
+	}
+
+	// indent the output if an indent is set.
+	private static XMLStreamWriter format(XMLStreamWriter writer,
+			String indent, String newLine) {
+		if (indent == null || writer instanceof IndentingStreamWriter) {
+			return writer;
+		}
+		return new IndentingStreamWriter(writer, indent, newLine);
+	}
 
-		rss = buildRSS(buildChannel(channel.getTitle(), channel.getLink(),
-				channel.getDescription(), channel.getLanguage(), channel
-						.getCopyright(), channel.getManagingEditor(), channel
-						.getWebMaster(), channel.getPubDate(), channel
-						.getLastBuildDate(), channel.getCategories(),
-				getLibVersion(), channel.getDocs(), channel.getCloud(), channel
-						.getTtl(), channel.getImage(), channel.getRating(),
-				channel.getTextInput(), channel.getSkipHours(), channel
-						.getSkipDays(), channel.getExtensions(), channel
-						.getItems()), rss.getAttributes(), rss.getExtensions());
+	// UTF-8 output is written by the faster UTF8StreamWriter which produces
+	// the same bytes as the JDK's writer.
+	private XMLStreamWriter createXMLStreamWriter(OutputStream output,
+			String encoding) throws Exception {
+		if ("UTF-8".equalsIgnoreCase(encoding)) {
+			return new UTF8StreamWriter(output);
+		}
+		return XMLOutputFactory.newInstance().createXMLStreamWriter(output,
+				encoding);
+	}
 
-		// write the xml header.
+	// write the xml header.
+	void writeStartDocument(XMLStreamWriter writer, String encoding,
+			String version) throws Exception {
 		writer.writeStartDocument(encoding, version);
 		if (this.processingInstructions != null) {
 			for (ProcessingInstruction pi : this.processingInstructions) {
 				writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
 			}
 		}
-
-		new RSSWriter().writeRSS(writer, rss);
-		writer.flush();
-		writer.close();
 	}
 
 	/**
@@ -918,6 +1356,440 @@ public final class RSSDoc implements Serializable {
 		return xmlVersion;
 	}
 
+	/**
+	 * @return the amount of checking done by the factory methods and the
+	 *         readers. The default is ValidationLevel.STRICT.
+	 */
+	public ValidationLevel getValidationLevel() {
+		return validationLevel;
+	}
+
+	/**
+	 * @param validationLevel
+	 *            the amount of checking done by the factory methods and the
+	 *            readers. For example use ValidationLevel.TRUSTED when reading
+	 *            feeds that RSSpect already wrote and validated. null resets
+	 *            the level to ValidationLevel.STRICT.
+	 */
+	public void setValidationLevel(ValidationLevel validationLevel) {
+		this.validationLevel = (validationLevel == null) ? ValidationLevel.STRICT
+				: validationLevel;
+	}
+
+	/**
+	 * @return true if the readers throw RSSpectExceptions without a stack
+	 *         trace. The default is false.
+	 */
+	public boolean isStacklessExceptions() {
+		return stacklessExceptions;
+	}
+
+	/**
+	 * @param stacklessExceptions
+	 *            true to have the readers throw RSSpectExceptions without
+	 *            capturing a stack trace. This makes rejecting an invalid feed
+	 *            about as cheap as reading a valid one, which matters when
+	 *            reading large numbers of third party feeds. Use
+	 *            RSSpectException.getErrorCode() and getContext() to find out
+	 *            what went wrong.
+	 */
+	public void setStacklessExceptions(boolean stacklessExceptions) {
+		this.stacklessExceptions = stacklessExceptions;
+	}
+
+	/**
+	 * @return the resource limits enforced by the readers or null if there
+	 *         are none. The default is null.
+	 */
+	public ReaderLimits getReaderLimits() {
+		return readerLimits;
+	}
+
+	/**
+	 * @param readerLimits
+	 *            the resource limits enforced by the readers, including
+	 *            validate(). A read that crosses one of the limits stops
+	 *            immediately with an RSSpectException with the error code
+	 *            LIMIT_EXCEEDED. null removes the limits.
+	 */
+	public void setReaderLimits(ReaderLimits readerLimits) {
+		this.readerLimits = readerLimits;
+	}
+
+	/**
+	 * @return true if the writers keep the encoded bytes of the items they
+	 *         write. The default is false.
+	 */
+	public boolean isCachingItems() {
+		return cachingItems;
+	}
+
+	/**
+	 * @param cachingItems
+	 *            true to have the UTF-8 writers keep the encoded bytes of each
+	 *            item with the item (and its copies) and copy them straight to
+	 *            the output the next time the item is written. Feeds that
+	 *            change by a few items per update then only encode the new
+	 *            items. This costs the size of the written item in memory per
+	 *            item. The bytes are only reused by documents with the same
+	 *            extension handlers, and setting a handler starts the cache
+	 *            over.
+	 */
+	public void setCachingItems(boolean cachingItems) {
+		this.cachingItems = cachingItems;
+	}
+
+	/**
+	 * @return the filter applied to xhtml extension content by the readers or
+	 *         null if the content is kept as it is. The default is null.
+	 */
+	public XHTMLFilter getXHTMLFilter() {
+		return xhtmlFilter;
+	}
+
+	/**
+	 * @param xhtmlFilter
+	 *            the elements and attributes the readers keep in the content
+	 *            of extensions in the xhtml namespace or null to keep all of
+	 *            them.
+	 */
+	public void setXHTMLFilter(XHTMLFilter xhtmlFilter) {
+		this.xhtmlFilter = xhtmlFilter;
+	}
+
+	/**
+	 * @return the number of characters of description or extension text the
+	 *         readers keep in memory or 0 if there is no limit. The default is
+	 *         0.
+	 */
+	public int getSpillThreshold() {
+		return spillThreshold;
+	}
+
+	/**
+	 * @param spillThreshold
+	 *            the number of characters of description or extension text
+	 *            (eg. content:encoded) the readers keep in memory. Longer
+	 *            text is written to a temporary file while it is read and
+	 *            the element reads it back from there when it is asked for
+	 *            it. The writers copy it from the file to the output without
+	 *            reading it all in. 0 keeps all text in memory.
+	 */
+	public void setSpillThreshold(int spillThreshold) {
+		this.spillThreshold = spillThreshold;
+	}
+
+	/**
+	 * @return the directory of the temporary files of long text or null for
+	 *         the default temporary directory. The default is null.
+	 */
+	public File getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * @param spillDirectory
+	 *            the directory of the temporary files of long text or null
+	 *            for the default temporary directory. The files are deleted
+	 *            by deleteSpilledText(). Files of elements that are garbage
+	 *            collected first are deleted the next time text is spilled or
+	 *            read, and the rest when the JVM exits.
+	 */
+	public void setSpillDirectory(File spillDirectory) {
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * deletes the temporary files of the long text of a document read with a
+	 * spill threshold. The descriptions and extensions that were spilled
+	 * cannot be read afterwards, so call this once the document and its
+	 * copies are no longer needed.
+	 * 
+	 * @param rss
+	 *            the document to delete the files of.
+	 */
+	public void deleteSpilledText(RSS rss) {
+		deleteSpilledText(rss.extensions());
+		Channel channel = rss.channel();
+		deleteSpilledText(channel.description());
+		if (channel.image() != null) {
+			deleteSpilledText(channel.image().getDescription());
+		}
+		if (channel.textInput() != null) {
+			deleteSpilledText(channel.textInput().getDescription());
+		}
+		deleteSpilledText(channel.extensions());
+		if (channel.items() != null) {
+			for (Item item : channel.items()) {
+				deleteSpilledText(item.description());
+				deleteSpilledText(item.extensions());
+			}
+		}
+	}
+
+	private static void deleteSpilledText(Description description) {
+		if (description != null && description.spilled() != null) {
+			description.spilled().delete();
+		}
+	}
+
+	private static void deleteSpilledText(List<Extension> extensions) {
+		if (extensions != null) {
+			for (Extension extension : extensions) {
+				if (extension.spilled() != null) {
+					extension.spilled().delete();
+				}
+			}
+		}
+	}
+
+	// collects the text of an element for the readers.
+	TextSpool createTextSpool() {
+		return new TextSpool(spillThreshold, spillDirectory);
+	}
+
+	/**
+	 * @return true if the readers keep the markup of the extensions they do
+	 *         not interpret. The default is false.
+	 */
+	public boolean isPreservingExtensions() {
+		return preservingExtensions;
+	}
+
+	/**
+	 * @param preservingExtensions
+	 *            true to have the readers keep the markup of each extension
+	 *            element that has no ExtensionHandler, including its sub
+	 *            elements, comments and entity references, and have the
+	 *            writers copy it back to the output unchanged. Otherwise the
+	 *            sub elements of an extension are written back as escaped
+	 *            text. This costs about the size of the element in memory per
+	 *            extension.
+	 */
+	public void setPreservingExtensions(boolean preservingExtensions) {
+		this.preservingExtensions = preservingExtensions;
+	}
+
+	/**
+	 * @return true if the readers replace html entities such as &amp;nbsp; with
+	 *         their characters. The default is false.
+	 */
+	public boolean isResolvingHTMLEntities() {
+		return resolvingHTMLEntities;
+	}
+
+	/**
+	 * @param resolvingHTMLEntities
+	 *            true to have the readers replace the undeclared html5 named
+	 *            entities of a feed (&amp;nbsp;, &amp;eacute; etc.) with their
+	 *            characters while the text is read. Otherwise they are kept as
+	 *            entity text and written back escaped eg. &amp;amp;nbsp;.
+	 *            Entities that are not html entities are kept either way.
+	 */
+	public void setResolvingHTMLEntities(boolean resolvingHTMLEntities) {
+		this.resolvingHTMLEntities = resolvingHTMLEntities;
+	}
+
+	/**
+	 * @return true if the writers declare the namespaces of the extensions on
+	 *         the rss element. The default is false.
+	 */
+	public boolean isHoistingNamespaces() {
+		return hoistingNamespaces;
+	}
+
+	/**
+	 * @param hoistingNamespaces
+	 *            true to have the writers declare each namespace used by the
+	 *            extensions of the rss element, the channel and its items once
+	 *            on the rss element and leave the declarations off the
+	 *            extension elements. A namespace written with several
+	 *            prefixes is written with one of them and a prefix used for
+	 *            two namespaces is numbered for the second one eg. atom2. The
+	 *            item cache is not used while hoisting since the bytes of an
+	 *            item then depend on the rest of the feed. Items written
+	 *            later by an RSSStreamWriter only use the namespaces hoisted
+	 *            from its header.
+	 */
+	public void setHoistingNamespaces(boolean hoistingNamespaces) {
+		this.hoistingNamespaces = hoistingNamespaces;
+	}
+
+	/**
+	 * @return the indent used by the writers or null if the output is not
+	 *         indented. The default is null.
+	 */
+	public String getIndent() {
+		return indent;
+	}
+
+	/**
+	 * @param indent
+	 *            the indent for each level of nesting written by the writers
+	 *            eg. two spaces or a tab. null turns indenting off.
+	 */
+	public void setIndent(String indent) {
+		this.indent = indent;
+	}
+
+	/**
+	 * @return the line separator of indented output. The default is \n.
+	 */
+	public String getNewLine() {
+		return newLine;
+	}
+
+	/**
+	 * @param newLine
+	 *            the line separator of indented output. null resets it to \n.
+	 */
+	public void setNewLine(String newLine) {
+		this.newLine = (newLine == null) ? "\n" : newLine;
+	}
+
+	/**
+	 * @return the number of most recent items the writers write or 0 if they
+	 *         write all of them. The default is 0.
+	 */
+	public int getMaxItems() {
+		return maxItems;
+	}
+
+	/**
+	 * @param maxItems
+	 *            the number of most recent items by pubDate that the writers
+	 *            write. The items are picked while the channel is written and
+	 *            keep their order in the document, so a long item history can
+	 *            be published as its latest entries without building a second
+	 *            RSS bean. Items without a pubDate count as the oldest. 0 or
+	 *            less writes all of them.
+	 */
+	public void setMaxItems(int maxItems) {
+		this.maxItems = maxItems;
+	}
+
+	/**
+	 * @return the date the written items must be published after or null if
+	 *         the items are not filtered by date. The default is null.
+	 */
+	public Date getItemCutoff() {
+		return (itemCutoff == null) ? null : new Date(itemCutoff.getTime());
+	}
+
+	/**
+	 * @param itemCutoff
+	 *            only the items of the channel with a pubDate after this date
+	 *            are written. It can be combined with setMaxItems(). Items
+	 *            given to an RSSStreamWriter one at a time are always written.
+	 *            null writes all of them.
+	 */
+	public void setItemCutoff(Date itemCutoff) {
+		this.itemCutoff = (itemCutoff == null) ? null : new Date(itemCutoff
+				.getTime());
+	}
+
+	/**
+	 * @return the generator the writers write in place of the generator of
+	 *         the channel or null if they write the one of the channel. The
+	 *         default is getLibVersion().
+	 */
+	public Generator getGenerator() {
+		return (generator == null) ? null : new Generator(generator);
+	}
+
+	/**
+	 * @param generator
+	 *            the generator the writers write in place of the generator of
+	 *            the channel. null writes the generator of the channel if it
+	 *            has one.
+	 */
+	public void setGenerator(Generator generator) {
+		this.generator = (generator == null) ? null : new Generator(generator);
+	}
+
+	/**
+	 * @return the executor the UTF-8 writers use to write large channels in
+	 *         parallel or null if they write on the calling thread. The
+	 *         default is null.
+	 */
+	public ExecutorService getWriterExecutor() {
+		return writerExecutor;
+	}
+
+	/**
+	 * @param writerExecutor
+	 *            an executor to write channels with more than 512 items in
+	 *            parallel. Ranges of items are written into separate buffers
+	 *            on the executor and copied to the output in order between the
+	 *            channel elements and the end of the channel, so the output
+	 *            is the same as when it is written on one thread. It is only
+	 *            used for UTF-8 output that is not indented. The executor is
+	 *            not shut down by the RSSDoc. null writes on the calling
+	 *            thread.
+	 */
+	public void setWriterExecutor(ExecutorService writerExecutor) {
+		this.writerExecutor = writerExecutor;
+	}
+
+	/**
+	 * Registers a handler that reads and writes the extension elements of a
+	 * namespace as typed objects, eg. the media:content elements of Media RSS
+	 * as objects with int width and height values. The readers pass the live
+	 * XMLStreamReader to the handler so the element is read once instead of
+	 * being turned into a String first. Extensions of other namespaces are
+	 * still read into Strings.
+	 * 
+	 * @param namespaceURI
+	 *            the namespace of the extension elements eg.
+	 *            http://search.yahoo.com/mrss/
+	 * @param handler
+	 *            the handler or null to remove the handler of the namespace.
+	 */
+	public void setExtensionHandler(String namespaceURI,
+			ExtensionHandler handler) {
+		// the items cached with the old handlers are written again.
+		handlersKey = null;
+		if (handler == null) {
+			if (extensionHandlers != null) {
+				extensionHandlers.remove(namespaceURI);
+			}
+		} else {
+			if (extensionHandlers == null) {
+				extensionHandlers = new HashMap<String, ExtensionHandler>();
+			}
+			extensionHandlers.put(namespaceURI, handler);
+		}
+	}
+
+	/**
+	 * @param namespaceURI
+	 *            the namespace of the extension elements.
+	 * @return the handler registered for the namespace or null if there is
+	 *         none.
+	 */
+	public ExtensionHandler getExtensionHandler(String namespaceURI) {
+		return (extensionHandlers == null) ? null : extensionHandlers
+				.get(namespaceURI);
+	}
+
+	// the registered handlers without a copy for the readers and writers.
+	Map<String, ExtensionHandler> getExtensionHandlers() {
+		return (extensionHandlers == null || extensionHandlers.isEmpty()) ? null
+				: extensionHandlers;
+	}
+
+	// the key of the item bytes cached by the writers. Documents without
+	// handlers share it since they write the same bytes.
+	Object getFragmentKey() {
+		if (getExtensionHandlers() == null) {
+			return NO_HANDLERS;
+		}
+		if (handlersKey == null) {
+			handlersKey = new Object();
+		}
+		return handlersKey;
+	}
+
 	void setEncoding(String encoding) {
 		this.encoding = encoding;
 	}
@@ -15,10 +15,13 @@
  */
 package com.colorfulsoftware.rss;
 
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import javax.xml.stream.Location;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -37,8 +40,61 @@ class RSSReader implements Serializable {
 
 	private RSSDoc rss;
 
+	// when not null the violations are collected here instead of thrown.
+	private final ValidationReport report;
+
+	// the violation that kept the rss or channel element from being built.
+	private Violation unrecoverable;
+
+	// tracks the element path while collecting violations.
+	private transient ElementPathReader position;
+
+	private final ReaderLimits limits;
+
+	// the typed extension handlers by namespace or null if there are none.
+	private final transient Map<String, ExtensionHandler> extensionHandlers;
+
+	// turns xhtml content back into markup, created when first needed.
+	private transient XHTMLStage xhtmlStage;
+
+	// counts the bytes read when there is a byte limit.
+	private transient LimitedInputStream input;
+
+	private int itemCount = 0;
+
+	private int extensionCount = 0;
+
 	public RSSReader(RSSDoc rss) throws Exception {
+		this(rss, null);
+	}
+
+	/**
+	 * @param rss
+	 *            the RSSDoc containing the factory methods.
+	 * @param report
+	 *            the report to collect violations in or null to throw the
+	 *            first one.
+	 * @throws Exception
+	 *             if the reader cannot be created.
+	 */
+	RSSReader(RSSDoc rss, ValidationReport report) throws Exception {
 		this.rss = rss;
+		this.report = report;
+		this.limits = rss.getReaderLimits();
+		this.extensionHandlers = rss.getExtensionHandlers();
+	}
+
+	/**
+	 * @param inputStream
+	 *            the document input.
+	 * @return the input wrapped so that it stops at the byte limit if there
+	 *         is one.
+	 */
+	InputStream limit(InputStream inputStream) {
+		if (limits == null || limits.getMaxBytes() <= 0) {
+			return inputStream;
+		}
+		return input = new LimitedInputStream(inputStream, limits.getMaxBytes());
 	}
 
 	/**
@@ -51,6 +107,111 @@ class RSSReader implements Serializable {
 	 *             if the stream cannot be parsed.
 	 */
 	RSS readRSS(XMLStreamReader reader) throws Exception {
+		// the stack traces are never seen while collecting violations.
+		boolean stackless = RSSpectException.setStackless(report != null
+				|| rss.isStacklessExceptions());
+		try {
+			if (rss.isResolvingHTMLEntities()) {
+				reader = new EntityResolvingReader(reader);
+			}
+			if (report != null
+					|| (limits != null && (limits.getMaxDepth() > 0 || limits
+							.getMaxTextLength() > 0))) {
+				reader = position = (limits == null) ? new ElementPathReader(
+						reader) : new ElementPathReader(reader, limits
+						.getMaxDepth(), limits.getMaxTextLength());
+			}
+			try {
+				return readRSSElement(reader);
+			} catch (RSSpectException e) {
+				if (e.getContext() == null) {
+					e.setContext(getContext(reader));
+				}
+				throw e;
+			} catch (XMLStreamException e) {
+				String limitExceeded = getLimitExceeded();
+				if (limitExceeded != null) {
+					RSSpectException limit = new RSSpectException(
+							ErrorCode.LIMIT_EXCEEDED, limitExceeded);
+					limit.setContext(getContext(reader));
+					throw limit;
+				}
+				if (report == null) {
+					throw e;
+				}
+				// the rest of the document cannot be read.
+				Location location = e.getLocation();
+				Violation fatal = new Violation(ErrorCode.MALFORMED_XML,
+						position.getPath(), (location == null) ? -1 : location
+								.getLineNumber(), (location == null) ? -1
+								: location.getColumnNumber(), e.getMessage(),
+						true);
+				report.addViolation(fatal);
+				unrecoverable = fatal;
+				return null;
+			}
+		} finally {
+			RSSpectException.setStackless(stackless);
+		}
+	}
+
+	// reads the text of a text only element. A nested element is reported as
+	// a value that is not valid so the reader can skip it and carry on rather
+	// than as xml that is not well formed.
+	private String getElementText(XMLStreamReader reader) throws Exception {
+		String elementName = getElementName(reader);
+		try {
+			return reader.getElementText();
+		} catch (XMLStreamException e) {
+			if (reader.getEventType() != XMLStreamConstants.START_ELEMENT
+					|| getLimitExceeded() != null) {
+				throw e;
+			}
+			throw new RSSpectException(ErrorCode.INVALID_VALUE, elementName
+					+ " elements MUST contain only text. Yours contained: "
+					+ getElementName(reader));
+		}
+	}
+
+	// the violation that kept the document from being read or null if it was
+	// read.
+	Violation getUnrecoverable() {
+		return unrecoverable;
+	}
+
+	// the reason reading stopped or null if no limit was crossed.
+	private String getLimitExceeded() {
+		if (input != null && input.isExceeded()) {
+			return "the document is larger than the limit of "
+					+ limits.getMaxBytes() + " bytes.";
+		}
+		return (position == null) ? null : position.getLimitExceeded();
+	}
+
+	// throws if the count is over the limit.
+	private void checkLimit(int count, int limit, String name)
+			throws RSSpectException {
+		if (limit > 0 && count > limit) {
+			throw new RSSpectException(ErrorCode.LIMIT_EXCEEDED,
+					"the document has more than the limit of " + limit + " "
+							+ name + ".");
+		}
+	}
+
+	// describes where the reader stopped eg. "pubDate at line 8, column 42"
+	private String getContext(XMLStreamReader reader) {
+		StringBuilder context = new StringBuilder();
+		if (reader.getEventType() == XMLStreamConstants.START_ELEMENT
+				|| reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+			context.append(getElementName(reader)).append(" at ");
+		}
+		Location location = reader.getLocation();
+		return context.append("line ").append(location.getLineNumber())
+				.append(", column ").append(location.getColumnNumber())
+				.toString();
+	}
+
+	private RSS readRSSElement(XMLStreamReader reader) throws Exception {
 
 		Channel channel = null;
 		List<Attribute> attributes = getAttributes(reader);
@@ -63,20 +224,31 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				// call each feed elements read method depending on the name
-
-				if (elementName.equals("channel")) {
-					if (attributes == null) {
-						throw new RSSpectException(
-								"rss documents must contain the version attribute.");
+				try {
+					// call each feed elements read method depending on the name
+
+					if (elementName.equals("channel")) {
+						if (attributes == null) {
+							throw new RSSpectException(
+									ErrorCode.MISSING_ATTRIBUTE,
+									"rss documents must contain the version attribute.");
+						}
+						channel = readChannel(reader);
+					} else {// extension
+						if (attributes == null) {
+							throw new RSSpectException(
+									ErrorCode.MISSING_ATTRIBUTE,
+									"rss documents must contain the version attribute.");
+						}
+						extensions = readExtension(reader, extensions,
+								elementName);
 					}
-					channel = readChannel(reader);
-				} else {// extension
-					if (attributes == null) {
-						throw new RSSpectException(
-								"rss documents must contain the version attribute.");
+				} catch (RSSpectException e) {
+					Violation violation = recover(e);
+					if (elementName.equals("channel")) {
+						// the channel itself could not be built.
+						unrecoverable = violation;
 					}
-					extensions = readExtension(reader, extensions, elementName);
 				}
 				break;
 
@@ -89,7 +261,31 @@ class RSSReader implements Serializable {
 			}
 		}
 
-		return rss.buildRSS(channel, attributes, extensions);
+		try {
+			return rss.buildRSS(channel, attributes, extensions);
+		} catch (RSSpectException e) {
+			Violation violation = recover(e);
+			if (unrecoverable == null) {
+				unrecoverable = violation;
+			}
+			return null;
+		}
+	}
+
+	// rethrows the exception unless violations are being collected. Crossed
+	// limits are always rethrown. Otherwise the violation is recorded and the
+	// reader is moved past the offending element so the enclosing element can
+	// carry on reading.
+	private Violation recover(RSSpectException e) throws Exception {
+		if (report == null || e.getErrorCode() == ErrorCode.LIMIT_EXCEEDED) {
+			throw e;
+		}
+		Violation violation = new Violation(e.getErrorCode(), position
+				.getPath(), position.getLineNumber(), position
+				.getColumnNumber(), e.getMessage(), false);
+		report.addViolation(violation);
+		position.skipElement();
+		return violation;
 	}
 
 	List<Attribute> getAttributes(XMLStreamReader reader) throws Exception {
@@ -173,55 +369,225 @@ class RSSReader implements Serializable {
 
 	List<Extension> readExtension(XMLStreamReader reader,
 			List<Extension> extensions, String elementName) throws Exception {
+		if (limits != null) {
+			checkLimit(++extensionCount, limits.getMaxExtensions(),
+					"extensions");
+		}
 		if (extensions == null) {
 			extensions = new LinkedList<Extension>();
 		}
 
-		StringBuilder extText = new StringBuilder();
-		List<Attribute> attributes = getAttributes(reader);
+		String namespaceURI = reader.getNamespaceURI();
+		if (namespaceURI != null && namespaceURI.length() == 0) {
+			namespaceURI = null;
+		}
 
-		// if this is a top level extension and it is has type of xhtml then
-		// treat it as such.
-		if (containsXHTML(reader, elementName)) {
-			extText.append(readXHTML(reader, elementName));
+		// the prefix is checked once here against the namespace context of
+		// the document.
+		String prefix = reader.getPrefix();
+		if (namespaceURI == null && prefix != null && prefix.length() > 0
+				&& rss.getValidationLevel().checkStructure()) {
+			throw new RSSpectException(
+					ErrorCode.UNBOUND_PREFIX,
+					"the following extension prefix(es) ( "
+							+ prefix
+							+ " ) are not bound to a namespace declaration. See http://www.w3.org/TR/1999/REC-xml-names-19990114/#ns-decl.");
+		}
 
-		} else {
+		// let a registered handler read the element as a typed object.
+		if (extensionHandlers != null) {
+			ExtensionHandler handler = (namespaceURI == null) ? null
+					: extensionHandlers.get(namespaceURI);
+			if (handler != null) {
+				List<Attribute> attributes = getAttributes(reader);
+				Object value = handler.read(reader);
+				if (reader.getEventType() != XMLStreamConstants.END_ELEMENT
+						|| !getElementName(reader).equals(elementName)) {
+					throw new RSSpectException(ErrorCode.INVALID_VALUE,
+							"the extension handler for " + namespaceURI
+									+ " did not stop at the end of "
+									+ elementName + ".");
+				}
+				if (value == null) {
+					throw new RSSpectException(ErrorCode.INVALID_VALUE,
+							"the extension handler for " + namespaceURI
+									+ " returned no value for " + elementName
+									+ ".");
+				}
+				extensions.add(rss.buildTypedExtension(namespaceURI,
+						elementName, attributes, value));
+				return extensions;
+			}
+		}
 
-			boolean breakOut = false;
-			while (reader.hasNext()) {
-				switch (reader.next()) {
-				case XMLStreamConstants.START_ELEMENT:
-					String elementNameStart = getElementName(reader);
-					if (!elementNameStart.equals(elementName)) {
-						extText.append(readSubExtension(reader,
-								elementNameStart, attributes));
-					}
-					break;
+		// long text such as content:encoded may be spilled to a file.
+		TextSpool spool = (rss.getSpillThreshold() > 0) ? rss
+				.createTextSpool() : null;
+		Appendable extText = (spool == null) ? new StringBuilder() : spool;
+		StringBuilder raw = null;
+		List<Attribute> attributes = getAttributes(reader);
+		try {
+			// if this is a top level extension and it is has type of xhtml then
+			// treat it as such.
+			if (containsXHTML(reader, elementName)) {
+				extText.append(readXHTML(reader));
 
-				case XMLStreamConstants.END_ELEMENT:
-					String elementNameEnd = getElementName(reader);
-					if (elementNameEnd.equals(elementName)) {
-						breakOut = true;
-					}
-					break;
+			} else {
 
-				default:
-					extText.append(reader.getText());
-					break;
+				// keep the markup of the whole element for the writers to copy.
+				if (rss.isPreservingExtensions()) {
+					raw = new StringBuilder();
+					appendStartTag(raw, reader, elementName);
 				}
-				if (breakOut) {
-					break;
+				boolean rawOpen = true;
+
+				boolean breakOut = false;
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						String elementNameStart = getElementName(reader);
+						if (!elementNameStart.equals(elementName)) {
+							if (raw != null && rawOpen) {
+								raw.append('>');
+								rawOpen = false;
+							}
+							extText.append(readSubExtension(reader,
+									elementNameStart, attributes, raw));
+						}
+						break;
+
+					case XMLStreamConstants.END_ELEMENT:
+						String elementNameEnd = getElementName(reader);
+						if (elementNameEnd.equals(elementName)) {
+							breakOut = true;
+							if (raw != null) {
+								appendEndTag(raw, elementName, rawOpen);
+							}
+						}
+						break;
+
+					default:
+						extText.append(getText(reader));
+						if (raw != null) {
+							if (rawOpen) {
+								raw.append('>');
+								rawOpen = false;
+							}
+							appendText(raw, reader);
+						}
+						break;
+					}
+					if (breakOut) {
+						break;
+					}
 				}
 			}
+		} catch (Exception e) {
+			if (spool != null) {
+				spool.discard();
+			}
+			throw e;
 		}
 
-		extensions.add(rss.buildExtension(elementName, attributes, extText
-				.toString()));
+		// spilled text is written from its file rather than preserved.
+		if (spool != null && spool.isSpilled()) {
+			extensions.add(rss.buildExtension(namespaceURI, elementName,
+					attributes, null, spool.toSpilledText(), null));
+		} else {
+			extensions.add(rss.buildExtension(namespaceURI, elementName,
+					attributes, extText.toString(), null, (raw == null) ? null
+							: raw.toString()));
+		}
 		return extensions;
 	}
 
+	// the start tag as it was read, without the closing '>'.
+	private void appendStartTag(StringBuilder raw, XMLStreamReader reader,
+			String elementName) {
+		raw.append('<').append(elementName);
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			raw.append((prefix == null || prefix.equals("")) ? " xmlns"
+					: " xmlns:" + prefix);
+			appendValue(raw, reader.getNamespaceURI(i));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String prefix = reader.getAttributePrefix(i);
+			raw.append(' ');
+			if (prefix != null && !prefix.equals("")) {
+				raw.append(prefix).append(':');
+			}
+			raw.append(reader.getAttributeLocalName(i));
+			appendValue(raw, reader.getAttributeValue(i));
+		}
+	}
+
+	private void appendEndTag(StringBuilder raw, String elementName,
+			boolean open) {
+		if (open) {
+			raw.append("/>");
+		} else {
+			raw.append("</").append(elementName).append('>');
+		}
+	}
+
+	private void appendValue(StringBuilder raw, String value) {
+		raw.append("=\"");
+		escape(raw, value, true);
+		raw.append('"');
+	}
+
+	// the current text, comment, processing instruction or entity reference
+	// as markup.
+	private void appendText(StringBuilder raw, XMLStreamReader reader) {
+		switch (reader.getEventType()) {
+		case XMLStreamConstants.COMMENT:
+			raw.append("<!--").append(reader.getText()).append("-->");
+			break;
+		case XMLStreamConstants.CDATA:
+			raw.append("<![CDATA[").append(reader.getText()).append("]]>");
+			break;
+		case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			raw.append("<?").append(reader.getPITarget());
+			if (reader.getPIData() != null) {
+				raw.append(' ').append(reader.getPIData());
+			}
+			raw.append("?>");
+			break;
+		case XMLStreamConstants.ENTITY_REFERENCE:
+			raw.append('&').append(reader.getLocalName()).append(';');
+			break;
+		default:
+			escape(raw, reader.getText(), false);
+		}
+	}
+
+	private static void escape(StringBuilder raw, String text,
+			boolean attribute) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '<') {
+				raw.append("&lt;");
+			} else if (c == '>') {
+				raw.append("&gt;");
+			} else if (c == '&') {
+				raw.append("&amp;");
+			} else if (c == '"' && attribute) {
+				raw.append("&quot;");
+			} else {
+				raw.append(c);
+			}
+		}
+	}
+
 	private String readSubExtension(XMLStreamReader reader, String elementName,
-			List<Attribute> parentAttributes) throws Exception {
+			List<Attribute> parentAttributes, StringBuilder raw)
+			throws Exception {
+
+		if (raw != null) {
+			appendStartTag(raw, reader, elementName);
+		}
+		boolean rawOpen = true;
 
 		StringBuffer xhtml = new StringBuffer("<" + elementName);
 
@@ -249,8 +615,12 @@ class RSSReader implements Serializable {
 						openElementClosed = true;
 						xhtml.append(">");
 					}
+					if (raw != null && rawOpen) {
+						raw.append('>');
+						rawOpen = false;
+					}
 					xhtml.append(readSubExtension(reader, elementNameStart,
-							attributes));
+							attributes, raw));
 				}
 				break;
 
@@ -258,6 +628,9 @@ class RSSReader implements Serializable {
 				String elementNameEnd = getElementName(reader);
 				if (elementNameEnd.equals(elementName)) {
 					breakOut = true;
+					if (raw != null) {
+						appendEndTag(raw, elementName, rawOpen);
+					}
 				}
 
 				if (openElementClosed) {
@@ -280,7 +653,14 @@ class RSSReader implements Serializable {
 					xhtml.append(" >");
 					openElementClosed = true;
 				}
-				xhtml.append(reader.getText());
+				xhtml.append(getText(reader));
+				if (raw != null) {
+					if (rawOpen) {
+						raw.append('>');
+						rawOpen = false;
+					}
+					appendText(raw, reader);
+				}
 			}
 			if (breakOut) {
 				break;
@@ -289,91 +669,16 @@ class RSSReader implements Serializable {
 		return xhtml.toString();
 	}
 
-	private String readXHTML(XMLStreamReader reader, String parentElement)
+	private String readXHTML(XMLStreamReader reader)
 			throws Exception {
-		String parentNamespaceURI = namespaceURI;
-		StringBuffer xhtml = new StringBuffer();
-		String elementName = null;
-		boolean justReadStart = false;
-
-		while (reader.hasNext()) {
-			boolean breakOut = false;
-
-			switch (reader.next()) {
-
-			case XMLStreamConstants.START_ELEMENT:
-				elementName = getElementName(reader);
-				// if we read 2 start elements in a row, we need to close the
-				// first start element.
-				if (justReadStart) {
-					xhtml.append(">");
-				}
-
-				xhtml.append("<" + elementName);
-
-				List<Attribute> attributes = getAttributes(reader);
-				// add the attributes
-				if (attributes != null && attributes.size() > 0) {
-					for (Attribute attr : attributes) {
-						String attrVal = attr.getValue();
-						xhtml.append(" " + attr.getName() + "=\"" + attrVal
-								+ "\"");
-					}
-				}
-				justReadStart = true;
-
-				break;
-
-			case XMLStreamConstants.END_ELEMENT:
-				elementName = getElementName(reader);
-				if ((elementName.equals(parentElement) && !namespaceURI
-						.equals("http://www.w3.org/1999/xhtml"))
-						|| (elementName.equals(parentElement) && parentNamespaceURI
-								.equals("http://www.w3.org/1999/xhtml"))) {
-					breakOut = true;
-				} else {
-					if (justReadStart) {
-						xhtml.append(" />");
-					} else {
-						xhtml.append("</" + elementName + ">");
-					}
-					justReadStart = false;
-				}
-				break;
-
-			// so far no parsers seem to be able to detect CDATA :(. Maybe a
-			// not necessary?
-			// case XMLStreamConstants.CDATA:
-			// xhtml.append("<![CDATA[" + reader.getText() + "]]>");
-			// break;
-
-			default:
-				if (justReadStart) {
-					xhtml.append(">");
-					justReadStart = false;
-				}
-				// escape the markup.
-				String text = reader.getText();
-				// if the feed we are reading has invalid escaping the text
-				// will be null which results in a skipping of the malformed
-				// character.
-				if (text != null) {
-					xhtml.append(text.replaceAll("&", "&amp;").replaceAll("<",
-							"&lt;").replaceAll(">", "&gt;"));
-				}
-			}
-			if (breakOut) {
-				break;
-			}
+		if (xhtmlStage == null) {
+			xhtmlStage = new XHTMLStage(rss.getXHTMLFilter());
 		}
-		return xhtml.toString();
+		return xhtmlStage.read(reader);
 	}
 
-	// set the current namespace.
-	private String namespaceURI = "http://www.w3.org/2005/Atom";
-
 	Author readAuthor(XMLStreamReader reader) throws Exception {
-		return rss.buildAuthor(reader.getElementText());
+		return rss.buildAuthor(getElementText(reader));
 	}
 
 	List<Category> readCategory(XMLStreamReader reader,
@@ -384,7 +689,7 @@ class RSSReader implements Serializable {
 		}
 
 		categories.add(rss.buildCategory(getAttributeFromGroup(
-				getAttributes(reader), "domain"), reader.getElementText()));
+				getAttributes(reader), "domain"), getElementText(reader)));
 
 		return categories;
 	}
@@ -420,49 +725,54 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				// call each feed elements read method depending on the name
-				if (elementName.equals("title")) {
-					title = readTitle(reader);
-				} else if (elementName.equals("link")) {
-					link = readLink(reader);
-				} else if (elementName.equals("description")) {
-					description = readDescription(reader);
-				} else if (elementName.equals("language")) {
-					language = readLanguage(reader);
-				} else if (elementName.equals("copyright")) {
-					copyright = readCopyright(reader);
-				} else if (elementName.equals("managingEditor")) {
-					managingEditor = readManagingEditor(reader);
-				} else if (elementName.equals("webMaster")) {
-					webMaster = readWebMaster(reader);
-				} else if (elementName.equals("pubDate")) {
-					pubDate = readPubDate(reader);
-				} else if (elementName.equals("lastBuildDate")) {
-					lastBuildDate = readLastBuildDate(reader);
-				} else if (elementName.equals("category")) {
-					categories = readCategory(reader, categories);
-				} else if (elementName.equals("generator")) {
-					generator = readGenerator(reader);
-				} else if (elementName.equals("docs")) {
-					docs = readDocs(reader);
-				} else if (elementName.equals("cloud")) {
-					cloud = readCloud(reader);
-				} else if (elementName.equals("ttl")) {
-					ttl = readTTL(reader);
-				} else if (elementName.equals("image")) {
-					image = readImage(reader);
-				} else if (elementName.equals("rating")) {
-					rating = readRating(reader);
-				} else if (elementName.equals("textInput")) {
-					textInput = readTextInput(reader);
-				} else if (elementName.equals("skipHours")) {
-					skipHours = readSkipHours(reader);
-				} else if (elementName.equals("skipDays")) {
-					skipDays = readSkipDays(reader);
-				} else if (elementName.equals("item")) {
-					items = readItem(reader, items);
-				} else {// extension
-					extensions = readExtension(reader, extensions, elementName);
+				try {
+					// call each feed elements read method depending on the name
+					if (elementName.equals("title")) {
+						title = readTitle(reader);
+					} else if (elementName.equals("link")) {
+						link = readLink(reader);
+					} else if (elementName.equals("description")) {
+						description = readDescription(reader);
+					} else if (elementName.equals("language")) {
+						language = readLanguage(reader);
+					} else if (elementName.equals("copyright")) {
+						copyright = readCopyright(reader);
+					} else if (elementName.equals("managingEditor")) {
+						managingEditor = readManagingEditor(reader);
+					} else if (elementName.equals("webMaster")) {
+						webMaster = readWebMaster(reader);
+					} else if (elementName.equals("pubDate")) {
+						pubDate = readPubDate(reader);
+					} else if (elementName.equals("lastBuildDate")) {
+						lastBuildDate = readLastBuildDate(reader);
+					} else if (elementName.equals("category")) {
+						categories = readCategory(reader, categories);
+					} else if (elementName.equals("generator")) {
+						generator = readGenerator(reader);
+					} else if (elementName.equals("docs")) {
+						docs = readDocs(reader);
+					} else if (elementName.equals("cloud")) {
+						cloud = readCloud(reader);
+					} else if (elementName.equals("ttl")) {
+						ttl = readTTL(reader);
+					} else if (elementName.equals("image")) {
+						image = readImage(reader);
+					} else if (elementName.equals("rating")) {
+						rating = readRating(reader);
+					} else if (elementName.equals("textInput")) {
+						textInput = readTextInput(reader);
+					} else if (elementName.equals("skipHours")) {
+						skipHours = readSkipHours(reader);
+					} else if (elementName.equals("skipDays")) {
+						skipDays = readSkipDays(reader);
+					} else if (elementName.equals("item")) {
+						items = readItem(reader, items);
+					} else {// extension
+						extensions = readExtension(reader, extensions,
+								elementName);
+					}
+				} catch (RSSpectException e) {
+					recover(e);
 				}
 				break;
 
@@ -490,19 +800,29 @@ class RSSReader implements Serializable {
 	}
 
 	Comments readComments(XMLStreamReader reader) throws Exception {
-		return rss.buildComments(reader.getElementText());
+		return rss.buildComments(getElementText(reader));
 	}
 
 	Copyright readCopyright(XMLStreamReader reader) throws Exception {
-		return rss.buildCopyright(reader.getElementText());
+		return rss.buildCopyright(getElementText(reader));
 	}
 
 	Description readDescription(XMLStreamReader reader) throws Exception {
+		if (rss.getSpillThreshold() > 0) {
+			TextSpool description = rss.createTextSpool();
+			try {
+				readEncodedHTML(reader, "description", description);
+				return rss.buildSpooledDescription(description);
+			} catch (Exception e) {
+				description.discard();
+				throw e;
+			}
+		}
 		return rss.buildDescription(readEncodedHTML(reader, "description"));
 	}
 
 	Docs readDocs(XMLStreamReader reader) throws Exception {
-		return rss.buildDocs(reader.getElementText());
+		return rss.buildDocs(getElementText(reader));
 	}
 
 	Enclosure readEnclosure(XMLStreamReader reader) throws Exception {
@@ -510,16 +830,16 @@ class RSSReader implements Serializable {
 	}
 
 	Generator readGenerator(XMLStreamReader reader) throws Exception {
-		return rss.buildGenerator(reader.getElementText());
+		return rss.buildGenerator(getElementText(reader));
 	}
 
 	GUID readGUID(XMLStreamReader reader) throws Exception {
 		return rss.buildGUID(getAttributeFromGroup(getAttributes(reader),
-				"isPermaLink"), reader.getElementText());
+				"isPermaLink"), getElementText(reader));
 	}
 
 	Height readHeight(XMLStreamReader reader) throws Exception {
-		return rss.buildHeight(reader.getElementText());
+		return rss.buildHeight(getElementText(reader));
 	}
 
 	Image readImage(XMLStreamReader reader) throws Exception {
@@ -538,19 +858,23 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				// call each feed elements read method depending on the name
-				if (elementName.equals("url")) {
-					url = readURL(reader);
-				} else if (elementName.equals("title")) {
-					title = readTitle(reader);
-				} else if (elementName.equals("link")) {
-					link = readLink(reader);
-				} else if (elementName.equals("width")) {
-					width = readWidth(reader);
-				} else if (elementName.equals("height")) {
-					height = readHeight(reader);
-				} else if (elementName.equals("description")) {
-					description = readDescription(reader);
+				try {
+					// call each feed elements read method depending on the name
+					if (elementName.equals("url")) {
+						url = readURL(reader);
+					} else if (elementName.equals("title")) {
+						title = readTitle(reader);
+					} else if (elementName.equals("link")) {
+						link = readLink(reader);
+					} else if (elementName.equals("width")) {
+						width = readWidth(reader);
+					} else if (elementName.equals("height")) {
+						height = readHeight(reader);
+					} else if (elementName.equals("description")) {
+						description = readDescription(reader);
+					}
+				} catch (RSSpectException e) {
+					recover(e);
 				}
 				break;
 
@@ -573,6 +897,9 @@ class RSSReader implements Serializable {
 	List<Item> readItem(XMLStreamReader reader, List<Item> items)
 			throws Exception {
 
+		if (limits != null) {
+			checkLimit(++itemCount, limits.getMaxItems(), "items");
+		}
 		if (items == null) {
 			items = new LinkedList<Item>();
 		}
@@ -595,30 +922,34 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				// call each feed elements read method depending on the name
-				if (elementName.equals("title")) {
-					title = readTitle(reader);
-				} else if (elementName.equals("link")) {
-					link = readLink(reader);
-				} else if (elementName.equals("description")) {
-					description = rss.buildDescription(readEncodedHTML(reader,
-							"description"));
-				} else if (elementName.equals("author")) {
-					author = readAuthor(reader);
-				} else if (elementName.equals("category")) {
-					categories = readCategory(reader, categories);
-				} else if (elementName.equals("comments")) {
-					comments = readComments(reader);
-				} else if (elementName.equals("enclosure")) {
-					enclosure = readEnclosure(reader);
-				} else if (elementName.equals("guid")) {
-					guid = readGUID(reader);
-				} else if (elementName.equals("pubDate")) {
-					pubDate = readPubDate(reader);
-				} else if (elementName.equals("source")) {
-					source = readSource(reader);
-				} else {// extension
-					extensions = readExtension(reader, extensions, elementName);
+				try {
+					// call each feed elements read method depending on the name
+					if (elementName.equals("title")) {
+						title = readTitle(reader);
+					} else if (elementName.equals("link")) {
+						link = readLink(reader);
+					} else if (elementName.equals("description")) {
+						description = readDescription(reader);
+					} else if (elementName.equals("author")) {
+						author = readAuthor(reader);
+					} else if (elementName.equals("category")) {
+						categories = readCategory(reader, categories);
+					} else if (elementName.equals("comments")) {
+						comments = readComments(reader);
+					} else if (elementName.equals("enclosure")) {
+						enclosure = readEnclosure(reader);
+					} else if (elementName.equals("guid")) {
+						guid = readGUID(reader);
+					} else if (elementName.equals("pubDate")) {
+						pubDate = readPubDate(reader);
+					} else if (elementName.equals("source")) {
+						source = readSource(reader);
+					} else {// extension
+						extensions = readExtension(reader, extensions,
+								elementName);
+					}
+				} catch (RSSpectException e) {
+					recover(e);
 				}
 				break;
 
@@ -641,31 +972,31 @@ class RSSReader implements Serializable {
 	}
 
 	Language readLanguage(XMLStreamReader reader) throws Exception {
-		return rss.buildLanguage(reader.getElementText());
+		return rss.buildLanguage(getElementText(reader));
 	}
 
 	LastBuildDate readLastBuildDate(XMLStreamReader reader) throws Exception {
-		return rss.buildLastBuildDate(reader.getElementText());
+		return rss.buildLastBuildDate(getElementText(reader));
 	}
 
 	Link readLink(XMLStreamReader reader) throws Exception {
-		return rss.buildLink(reader.getElementText());
+		return rss.buildLink(getElementText(reader));
 	}
 
 	ManagingEditor readManagingEditor(XMLStreamReader reader) throws Exception {
-		return rss.buildManagingEditor(reader.getElementText());
+		return rss.buildManagingEditor(getElementText(reader));
 	}
 
 	Name readName(XMLStreamReader reader) throws Exception {
-		return rss.buildName(reader.getElementText());
+		return rss.buildName(getElementText(reader));
 	}
 
 	PubDate readPubDate(XMLStreamReader reader) throws Exception {
-		return rss.buildPubDate(reader.getElementText());
+		return rss.buildPubDate(getElementText(reader));
 	}
 
 	Rating readRating(XMLStreamReader reader) throws Exception {
-		return rss.buildRating(reader.getElementText());
+		return rss.buildRating(getElementText(reader));
 	}
 
 	SkipDays readSkipDays(XMLStreamReader reader) throws Exception {
@@ -679,8 +1010,12 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				if (elementName.equals("day")) {
-					days = readDay(reader, days);
+				try {
+					if (elementName.equals("day")) {
+						days = readDay(reader, days);
+					}
+				} catch (RSSpectException e) {
+					recover(e);
 				}
 				break;
 
@@ -702,7 +1037,7 @@ class RSSReader implements Serializable {
 		if (days == null) {
 			days = new LinkedList<Day>();
 		}
-		days.add(rss.buildDay(reader.getElementText()));
+		days.add(rss.buildDay(getElementText(reader)));
 		return days;
 	}
 
@@ -717,8 +1052,12 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				if (elementName.equals("hour")) {
-					hours = readHour(reader, hours);
+				try {
+					if (elementName.equals("hour")) {
+						hours = readHour(reader, hours);
+					}
+				} catch (RSSpectException e) {
+					recover(e);
 				}
 				break;
 
@@ -741,13 +1080,13 @@ class RSSReader implements Serializable {
 		if (hours == null) {
 			hours = new LinkedList<Hour>();
 		}
-		hours.add(rss.buildHour(reader.getElementText()));
+		hours.add(rss.buildHour(getElementText(reader)));
 		return hours;
 	}
 
 	Source readSource(XMLStreamReader reader) throws Exception {
 		return rss.buildSource(getAttributeFromGroup(getAttributes(reader),
-				"url"), reader.getElementText());
+				"url"), getElementText(reader));
 	}
 
 	TextInput readTextInput(XMLStreamReader reader) throws Exception {
@@ -764,15 +1103,19 @@ class RSSReader implements Serializable {
 
 			case XMLStreamConstants.START_ELEMENT:
 				elementName = getElementName(reader);
-				// call each feed elements read method depending on the name
-				if (elementName.equals("title")) {
-					title = readTitle(reader);
-				} else if (elementName.equals("description")) {
-					description = readDescription(reader);
-				} else if (elementName.equals("name")) {
-					name = readName(reader);
-				} else if (elementName.equals("link")) {
-					link = readLink(reader);
+				try {
+					// call each feed elements read method depending on the name
+					if (elementName.equals("title")) {
+						title = readTitle(reader);
+					} else if (elementName.equals("description")) {
+						description = readDescription(reader);
+					} else if (elementName.equals("name")) {
+						name = readName(reader);
+					} else if (elementName.equals("link")) {
+						link = readLink(reader);
+					}
+				} catch (RSSpectException e) {
+					recover(e);
 				}
 				break;
 
@@ -793,28 +1136,34 @@ class RSSReader implements Serializable {
 	}
 
 	Title readTitle(XMLStreamReader reader) throws Exception {
-		return rss.buildTitle(reader.getElementText());
+		return rss.buildTitle(getElementText(reader));
 	}
 
 	TTL readTTL(XMLStreamReader reader) throws Exception {
-		return rss.buildTTL(reader.getElementText());
+		return rss.buildTTL(getElementText(reader));
 	}
 
 	URL readURL(XMLStreamReader reader) throws Exception {
-		return rss.buildURL(reader.getElementText());
+		return rss.buildURL(getElementText(reader));
 	}
 
 	WebMaster readWebMaster(XMLStreamReader reader) throws Exception {
-		return rss.buildWebMaster(reader.getElementText());
+		return rss.buildWebMaster(getElementText(reader));
 	}
 
 	Width readWidth(XMLStreamReader reader) throws Exception {
-		return rss.buildWidth(reader.getElementText());
+		return rss.buildWidth(getElementText(reader));
 	}
 
 	String readEncodedHTML(XMLStreamReader reader, String parentElement)
 			throws XMLStreamException, Exception {
 		StringBuilder xhtml = new StringBuilder();
+		readEncodedHTML(reader, parentElement, xhtml);
+		return xhtml.toString();
+	}
+
+	private void readEncodedHTML(XMLStreamReader reader, String parentElement,
+			Appendable xhtml) throws XMLStreamException, Exception {
 		String elementName = null;
 		boolean breakOut = false;
 		while (reader.hasNext()) {
@@ -854,14 +1203,23 @@ class RSSReader implements Serializable {
 
 			default:
 				// escape the necessary characters.
-				xhtml.append(reader.getText().replaceAll("&", "&amp;")
+				xhtml.append(getText(reader).replaceAll("&", "&amp;")
 						.replaceAll("<", "&lt;").replaceAll(">", "&gt;"));
 			}
 			if (breakOut) {
 				break;
 			}
 		}
-		return xhtml.toString();
+	}
+
+	// the text of the current event. An entity reference that was not
+	// replaced has no text so it is kept the way it was written.
+	private static String getText(XMLStreamReader reader) {
+		if (reader.getEventType() == XMLStreamConstants.ENTITY_REFERENCE
+				&& reader.getText() == null) {
+			return "&" + reader.getLocalName() + ";";
+		}
+		return reader.getText();
 	}
 
 	private String getElementName(XMLStreamReader reader) {
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * <p>
+ * This class writes an rss document one item at a time. The rss element, the
+ * channel elements and any items already in the channel are written when it
+ * is created by RSSDoc.createStreamWriter(). Each item is written as soon as
+ * it is passed in and is not kept. close() ends the document.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public class RSSStreamWriter implements Closeable {
+
+	private final XMLStreamWriter writer;
+	private final RSSWriter rssWriter;
+	private boolean closed = false;
+
+	// use RSSDoc.createStreamWriter().
+	RSSStreamWriter(XMLStreamWriter writer, RSSWriter rssWriter, RSS header)
+			throws Exception {
+		this.writer = writer;
+		this.rssWriter = rssWriter;
+		rssWriter.writeRSSHeader(writer, header);
+		// the header is written as it is without copying it.
+		Channel channel = header.channel();
+		rssWriter.writeChannelHeader(writer, channel);
+		if (channel.items() != null) {
+			rssWriter.writeItems(writer, channel.items());
+		}
+	}
+
+	/**
+	 * @param item
+	 *            the next item of the channel.
+	 * @throws Exception
+	 *             if the item cannot be written or the writer is closed.
+	 */
+	public void writeItem(Item item) throws Exception {
+		if (closed) {
+			throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+					"the stream writer is closed.");
+		}
+		if (item == null) {
+			throw new RSSpectException(ErrorCode.INVALID_ARGUMENT,
+					"items cannot be null.");
+		}
+		rssWriter.writeItem(writer, item);
+	}
+
+	/**
+	 * @param items
+	 *            the next items of the channel eg. built from a database
+	 *            cursor.
+	 * @throws Exception
+	 *             if an item cannot be written or the writer is closed.
+	 */
+	public void writeItems(Iterator<Item> items) throws Exception {
+		while (items.hasNext()) {
+			writeItem(items.next());
+		}
+	}
+
+	/**
+	 * pushes anything buffered by the xml writer to the output.
+	 * 
+	 * @throws IOException
+	 *             if the output cannot be flushed.
+	 */
+	public void flush() throws IOException {
+		try {
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * ends the channel, the rss element and the document and closes the xml
+	 * writer. Calling it more than once has no effect.
+	 * 
+	 * @throws IOException
+	 *             if the end of the document cannot be written.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			writer.writeEndElement();
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.flush();
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+}
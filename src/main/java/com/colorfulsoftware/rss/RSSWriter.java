@@ -15,9 +15,27 @@
  */
 package com.colorfulsoftware.rss;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
 /**
@@ -32,172 +50,402 @@ class RSSWriter implements Serializable {
 
 	private static final long serialVersionUID = -835487922633476364L;
 
+	// reads preserved extension markup back for writers other than the UTF-8
+	// writer.
+	private static XMLInputFactory rawInputFactory;
+
+	private final boolean cacheItems;
+
+	private final int maxItems;
+
+	private final Date itemCutoff;
+
+	private final Generator generator;
+
+	private final transient ExecutorService executor;
+
+	private final transient Map<String, ExtensionHandler> extensionHandlers;
+
+	// the key of the cached item bytes this writer may reuse.
+	private final transient Object fragmentKey;
+
+	private final boolean hoistNamespaces;
+
+	// the namespaces declared on the rss element when they are hoisted.
+	private transient HoistedNamespaces namespaces;
+
+	// the number of items written by one task when writing in parallel.
+	private static final int CHUNK_SIZE = 512;
+
+	// the number of tasks that may be waiting to be written at once.
+	private static final int MAX_PENDING_CHUNKS = 16;
+
+	/**
+	 * @param rssDoc
+	 *            the RSSDoc with the output options to write with: the item
+	 *            cache, the item window, the generator, the executor for large
+	 *            channels, the extension handlers and namespace hoisting.
+	 */
+	RSSWriter(RSSDoc rssDoc) {
+		this.cacheItems = rssDoc.isCachingItems();
+		this.maxItems = rssDoc.getMaxItems();
+		this.itemCutoff = rssDoc.getItemCutoff();
+		this.generator = rssDoc.getGenerator();
+		this.executor = rssDoc.getWriterExecutor();
+		this.extensionHandlers = rssDoc.getExtensionHandlers();
+		this.fragmentKey = rssDoc.getFragmentKey();
+		this.hoistNamespaces = rssDoc.isHoistingNamespaces();
+	}
+
 	// used internally by FeedDoc to write feed to output streams.
 	void writeRSS(XMLStreamWriter writer, RSS rss) throws Exception {
+		writeRSSHeader(writer, rss);
+
+		// write the channel
+		// the channel should never be null since it is required
+		writeChannel(writer, rss.channel());
+
+		writer.writeEndElement();
+	}
+
+	// writes the start of the rss element and the rss extensions.
+	void writeRSSHeader(XMLStreamWriter writer, RSS rss) throws Exception {
 
 		// open the feed element
 		writer.writeStartElement("rss");
 		// the attributes should never be null since the version is required
-		for (Attribute attr : rss.getAttributes()) {
+		for (Attribute attr : rss.attributes()) {
 			writer.writeAttribute(attr.getName(), attr.getValue());
 		}
 
+		if (hoistNamespaces) {
+			namespaces = new HoistedNamespaces(rss.attributes());
+			namespaces.add(rss.extensions());
+			namespaces.add(rss.channel().extensions());
+			if (rss.channel().items() != null) {
+				for (Item item : rss.channel().items()) {
+					namespaces.add(item.extensions());
+				}
+			}
+			for (Map.Entry<String, String> declaration : namespaces
+					.getAdded().entrySet()) {
+				writer.writeAttribute("xmlns:" + declaration.getKey(),
+						declaration.getValue());
+			}
+		}
+
 		// write the extensions
-		if (rss.getExtensions() != null) {
-			writeExtensions(writer, rss.getExtensions());
+		if (rss.extensions() != null) {
+			writeExtensions(writer, rss.extensions());
 		}
+	}
 
-		// write the channel
-		// the channel should never be null since it is required
-		writeChannel(writer, rss.getChannel());
+	void writeChannel(XMLStreamWriter writer, Channel channel) throws Exception {
+		writeChannelHeader(writer, channel);
+
+		// finally write the items
+		if (channel.items() != null) {
+			writeItems(writer, channel.items());
+		}
 
 		writer.writeEndElement();
 	}
 
-	void writeChannel(XMLStreamWriter writer, Channel channel) throws Exception {
+	// writes the start of the channel and every channel element but the
+	// items.
+	void writeChannelHeader(XMLStreamWriter writer, Channel channel)
+			throws Exception {
 
 		writer.writeStartElement("channel");
 
 		// write the required elements
-		writeTitle(writer, channel.getTitle());
+		writeTitle(writer, channel.title());
 
-		writeLink(writer, channel.getLink());
+		writeLink(writer, channel.link());
 
-		writeDescription(writer, channel.getDescription());
+		writeDescription(writer, channel.description());
 
 		// write the optional elements
 
-		if (channel.getLanguage() != null) {
-			writeLanguage(writer, channel.getLanguage());
+		if (channel.language() != null) {
+			writeLanguage(writer, channel.language());
 		}
 
-		if (channel.getCopyright() != null) {
-			writeCopyright(writer, channel.getCopyright());
+		if (channel.copyright() != null) {
+			writeCopyright(writer, channel.copyright());
 		}
 
-		if (channel.getManagingEditor() != null) {
-			writeManagingEditor(writer, channel.getManagingEditor());
+		if (channel.managingEditor() != null) {
+			writeManagingEditor(writer, channel.managingEditor());
 		}
 
-		if (channel.getWebMaster() != null) {
-			writeWebMaster(writer, channel.getWebMaster());
+		if (channel.webMaster() != null) {
+			writeWebMaster(writer, channel.webMaster());
 		}
 
-		if (channel.getPubDate() != null) {
-			writePubDate(writer, channel.getPubDate());
+		if (channel.pubDate() != null) {
+			writePubDate(writer, channel.pubDate());
 		}
 
-		if (channel.getLastBuildDate() != null) {
-			writeLastBuildDate(writer, channel.getLastBuildDate());
+		if (channel.lastBuildDate() != null) {
+			writeLastBuildDate(writer, channel.lastBuildDate());
 		}
 
-		if (channel.getCategories() != null) {
-			writeCategories(writer, channel.getCategories());
+		if (channel.categories() != null) {
+			writeCategories(writer, channel.categories());
 		}
 
-		// always write out the rsspect library version.
-		writeGenerator(writer, new RSSDoc().getLibVersion());
+		// the generator override (the rsspect library version) replaces the
+		// generator of the channel.
+		Generator channelGenerator = (generator == null) ? channel.generator()
+				: generator;
+		if (channelGenerator != null) {
+			writeGenerator(writer, channelGenerator);
+		}
 
-		if (channel.getDocs() != null) {
-			writeDocs(writer, channel.getDocs());
+		if (channel.docs() != null) {
+			writeDocs(writer, channel.docs());
 		}
 
-		if (channel.getCloud() != null) {
-			writeCloud(writer, channel.getCloud());
+		if (channel.cloud() != null) {
+			writeCloud(writer, channel.cloud());
 		}
 
-		if (channel.getTtl() != null) {
-			writeTTL(writer, channel.getTtl());
+		if (channel.ttl() != null) {
+			writeTTL(writer, channel.ttl());
 		}
 
-		if (channel.getImage() != null) {
-			writeImage(writer, channel.getImage());
+		if (channel.image() != null) {
+			writeImage(writer, channel.image());
 		}
 
-		if (channel.getRating() != null) {
-			writeRating(writer, channel.getRating());
+		if (channel.rating() != null) {
+			writeRating(writer, channel.rating());
 		}
 
-		if (channel.getTextInput() != null) {
-			writeTextInput(writer, channel.getTextInput());
+		if (channel.textInput() != null) {
+			writeTextInput(writer, channel.textInput());
 		}
 
-		if (channel.getSkipHours() != null) {
-			writeSkipHours(writer, channel.getSkipHours());
+		if (channel.skipHours() != null) {
+			writeSkipHours(writer, channel.skipHours());
 		}
 
-		if (channel.getSkipDays() != null) {
-			writeSkipDays(writer, channel.getSkipDays());
+		if (channel.skipDays() != null) {
+			writeSkipDays(writer, channel.skipDays());
 		}
 
 		// add the extensions before the items.
-		if (channel.getExtensions() != null) {
-			writeExtensions(writer, channel.getExtensions());
+		if (channel.extensions() != null) {
+			writeExtensions(writer, channel.extensions());
 		}
+	}
 
-		// finally write the items
-		if (channel.getItems() != null) {
-			writeItems(writer, channel.getItems());
+	void writeItems(XMLStreamWriter writer, List<Item> items) throws Exception {
+		if (maxItems > 0 || itemCutoff != null) {
+			// keep the selected items in document order.
+			boolean[] selected = selectItems(items);
+			List<Item> selectedItems = new ArrayList<Item>();
+			int index = 0;
+			for (Item item : items) {
+				if (selected[index++]) {
+					selectedItems.add(item);
+				}
+			}
+			items = selectedItems;
+		}
+		if (executor != null && writer instanceof UTF8StreamWriter
+				&& items.size() > CHUNK_SIZE) {
+			writeItemsInParallel((UTF8StreamWriter) writer, items);
+		} else {
+			for (Item item : items) {
+				writeItem(writer, item);
+			}
 		}
+	}
 
-		writer.writeEndElement();
+	// writes ranges of items into separate buffers on the executor and copies
+	// the buffers to the output in order. No more than MAX_PENDING_CHUNKS
+	// buffers are held at once. A range the executor has not started yet is
+	// written by the calling thread, which also keeps a busy or single
+	// threaded executor from deadlocking when the caller runs on it.
+	private void writeItemsInParallel(UTF8StreamWriter writer, List<Item> items)
+			throws Exception {
+		if (!(items instanceof ArrayList<?>)) {
+			items = new ArrayList<Item>(items);
+		}
+		LinkedList<FutureTask<byte[]>> pending = new LinkedList<FutureTask<byte[]>>();
+		try {
+			for (int start = 0; start < items.size(); start += CHUNK_SIZE) {
+				final List<Item> chunk = items.subList(start, Math.min(start
+						+ CHUNK_SIZE, items.size()));
+				FutureTask<byte[]> task = new FutureTask<byte[]>(
+						new Callable<byte[]>() {
+							public byte[] call() throws Exception {
+								return writeChunk(chunk);
+							}
+						});
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException e) {
+					// the calling thread writes it.
+				}
+				pending.add(task);
+				if (pending.size() == MAX_PENDING_CHUNKS) {
+					writer.writeFragment(getChunk(pending.removeFirst()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				writer.writeFragment(getChunk(pending.removeFirst()));
+			}
+		} finally {
+			for (FutureTask<byte[]> chunk : pending) {
+				chunk.cancel(true);
+			}
+		}
 	}
 
-	void writeItems(XMLStreamWriter writer, List<Item> items) throws Exception {
+	private byte[] writeChunk(List<Item> chunk) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				chunk.size() * 512);
+		UTF8StreamWriter chunkWriter = new UTF8StreamWriter(bytes);
+		for (Item item : chunk) {
+			writeItem(chunkWriter, item);
+		}
+		chunkWriter.flush();
+		return bytes.toByteArray();
+	}
+
+	private static byte[] getChunk(FutureTask<byte[]> chunk) throws Exception {
+		// does nothing if the executor already started the task.
+		chunk.run();
+		try {
+			return chunk.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw (Error) cause;
+		}
+	}
 
+	// picks the maxItems most recent items published after the cutoff with a
+	// heap that never holds more than maxItems entries. Items without a
+	// pubDate are the oldest and of two items published at the same time the
+	// one further down the document is the older one.
+	private boolean[] selectItems(List<Item> items) {
+		final long[] times = new long[items.size()];
+		boolean[] selected = new boolean[times.length];
+		PriorityQueue<Integer> heap = null;
+		if (maxItems > 0) {
+			heap = new PriorityQueue<Integer>(maxItems + 1,
+					new Comparator<Integer>() {
+						public int compare(Integer first, Integer second) {
+							long firstTime = times[first.intValue()];
+							long secondTime = times[second.intValue()];
+							if (firstTime != secondTime) {
+								return (firstTime < secondTime) ? -1 : 1;
+							}
+							return second.intValue() - first.intValue();
+						}
+					});
+		}
+		int index = 0;
 		for (Item item : items) {
+			PubDate pubDate = item.pubDate();
+			times[index] = (pubDate == null) ? Long.MIN_VALUE : pubDate
+					.getDateTime().getTime();
+			if (itemCutoff == null || times[index] > itemCutoff.getTime()) {
+				if (heap == null) {
+					selected[index] = true;
+				} else {
+					heap.add(Integer.valueOf(index));
+					if (heap.size() > maxItems) {
+						heap.poll();
+					}
+				}
+			}
+			index++;
+		}
+		if (heap != null) {
+			for (Integer selectedIndex : heap) {
+				selected[selectedIndex.intValue()] = true;
+			}
+		}
+		return selected;
+	}
+
+	void writeItem(XMLStreamWriter writer, Item item) throws Exception {
+		// the bytes of an item depend on the namespaces of the whole feed
+		// when they are hoisted.
+		if (cacheItems && namespaces == null
+				&& writer instanceof UTF8StreamWriter) {
+			UTF8StreamWriter utf8Writer = (UTF8StreamWriter) writer;
+			byte[] fragment = item.getFragment(fragmentKey);
+			if (fragment == null) {
+				utf8Writer.startFragment();
+				writeItemElement(writer, item);
+				item.setFragment(fragmentKey, utf8Writer.endFragment());
+			} else {
+				utf8Writer.writeFragment(fragment);
+			}
+		} else {
+			writeItemElement(writer, item);
+		}
+	}
 
-			writer.writeStartElement("item");
+	private void writeItemElement(XMLStreamWriter writer, Item item) throws Exception {
 
-			// one of these two is required
-			if (item.getTitle() != null) {
-				writeTitle(writer, item.getTitle());
-			}
+		writer.writeStartElement("item");
 
-			if (item.getDescription() != null) {
-				writeDescription(writer, item.getDescription());
-			}
+		// one of these two is required
+		if (item.title() != null) {
+			writeTitle(writer, item.title());
+		}
 
-			// write the optional elements
-			if (item.getLink() != null) {
-				writeLink(writer, item.getLink());
-			}
+		if (item.description() != null) {
+			writeDescription(writer, item.description());
+		}
 
-			if (item.getAuthor() != null) {
-				writeAuthor(writer, item.getAuthor());
-			}
+		// write the optional elements
+		if (item.link() != null) {
+			writeLink(writer, item.link());
+		}
 
-			if (item.getCategories() != null) {
-				writeCategories(writer, item.getCategories());
-			}
+		if (item.author() != null) {
+			writeAuthor(writer, item.author());
+		}
 
-			if (item.getComments() != null) {
-				writeComments(writer, item.getComments());
-			}
+		if (item.categories() != null) {
+			writeCategories(writer, item.categories());
+		}
 
-			if (item.getEnclosure() != null) {
-				writeEnclosure(writer, item.getEnclosure());
-			}
+		if (item.comments() != null) {
+			writeComments(writer, item.comments());
+		}
 
-			if (item.getGuid() != null) {
-				writeGUID(writer, item.getGuid());
-			}
+		if (item.enclosure() != null) {
+			writeEnclosure(writer, item.enclosure());
+		}
 
-			if (item.getPubDate() != null) {
-				writePubDate(writer, item.getPubDate());
-			}
+		if (item.guid() != null) {
+			writeGUID(writer, item.guid());
+		}
 
-			if (item.getSource() != null) {
-				writeSource(writer, item.getSource());
-			}
+		if (item.pubDate() != null) {
+			writePubDate(writer, item.pubDate());
+		}
 
-			if (item.getExtensions() != null) {
-				writeExtensions(writer, item.getExtensions());
-			}
+		if (item.source() != null) {
+			writeSource(writer, item.source());
+		}
 
-			writer.writeEndElement();
+		if (item.extensions() != null) {
+			writeExtensions(writer, item.extensions());
 		}
 
+		writer.writeEndElement();
 	}
 
 	void writeAuthor(XMLStreamWriter writer, Author author) throws Exception {
@@ -213,9 +461,8 @@ class RSSWriter implements Serializable {
 
 			writer.writeStartElement("category");
 
-			if (category.getDomain() != null) {
-				writer.writeAttribute(category.getDomain().getName(), category
-						.getDomain().getValue());
+			if (category.domain() != null) {
+				writer.writeAttribute(category.domain().getName(), category.domain().getValue());
 			}
 			writer.writeCharacters(category.getCategory());
 			writer.writeEndElement();
@@ -226,7 +473,7 @@ class RSSWriter implements Serializable {
 	void writeCloud(XMLStreamWriter writer, Cloud cloud) throws Exception {
 		writer.writeEmptyElement("cloud");
 		// the attributes should never be null since they are required
-		for (Attribute attr : cloud.getAttributes()) {
+		for (Attribute attr : cloud.attributes()) {
 			writer.writeAttribute(attr.getName(), attr.getValue());
 		}
 	}
@@ -247,7 +494,11 @@ class RSSWriter implements Serializable {
 
 	void writeDescription(XMLStreamWriter writer, Description description)
 			throws Exception {
-		if (description.getDescription().trim().equals("")) {
+		if (description.spilled() != null) {
+			writer.writeStartElement("description");
+			writeSpilled(writer, description.spilled());
+			writer.writeEndElement();
+		} else if (description.getDescription().trim().equals("")) {
 			writer.writeEmptyElement("description");
 		} else {
 			writer.writeStartElement("description");
@@ -267,7 +518,7 @@ class RSSWriter implements Serializable {
 
 		writer.writeEmptyElement("enclosure");
 		// the attributes should never be null since they are required
-		for (Attribute attr : enclosure.getAttributes()) {
+		for (Attribute attr : enclosure.attributes()) {
 			writer.writeAttribute(attr.getName(), attr.getValue());
 		}
 	}
@@ -277,41 +528,42 @@ class RSSWriter implements Serializable {
 
 		for (Extension extension : extensions) {
 
+			// typed extensions are written by their handler.
+			if (extension.getValue() != null) {
+				ExtensionHandler handler = (extensionHandlers == null) ? null
+						: extensionHandlers.get(extension.getNamespaceURI());
+				if (handler == null) {
+					throw new RSSpectException(ErrorCode.INVALID_VALUE,
+							"there is no ExtensionHandler to write the value of the extension '"
+									+ extension.getElementName()
+									+ "' in the namespace '"
+									+ extension.getNamespaceURI() + "'.");
+				}
+				handler.write(writer, extension);
+				continue;
+			}
+
+			// preserved extensions are copied as they were read.
+			if (extension.raw() != null) {
+				writeRaw(writer, extension.raw());
+				continue;
+			}
+
+			// spilled content is copied from its file.
+			if (extension.spilled() != null) {
+				writeExtensionStart(writer, extension, false);
+				writeSpilled(writer, extension.spilled());
+				writer.writeEndElement();
+				continue;
+			}
+
 			// if there is no content, then
 			// write an empty extension element.
 			if (extension.getContent() == null
 					|| extension.getContent().trim().equals("")) {
-				String elementName = extension.getElementName();
-				if (elementName.indexOf(":") == -1) {
-					writer.writeEmptyElement(elementName);
-				} else {
-					String prefix = elementName.substring(0, elementName
-							.indexOf(":"));
-					String localName = elementName.substring(elementName
-							.indexOf(":") + 1);
-					writer.writeEmptyElement(prefix, localName, "");
-				}
-				if (extension.getAttributes() != null) {
-					for (Attribute attr : extension.getAttributes()) {
-						writer.writeAttribute(attr.getName(), attr.getValue());
-					}
-				}
+				writeExtensionStart(writer, extension, true);
 			} else {
-				String elementName = extension.getElementName();
-				if (elementName.indexOf(":") == -1) {
-					writer.writeStartElement(elementName);
-				} else {
-					String prefix = elementName.substring(0, elementName
-							.indexOf(":"));
-					String localName = elementName.substring(elementName
-							.indexOf(":") + 1);
-					writer.writeStartElement(prefix, localName, "");
-				}
-				if (extension.getAttributes() != null) {
-					for (Attribute attr : extension.getAttributes()) {
-						writer.writeAttribute(attr.getName(), attr.getValue());
-					}
-				}
+				writeExtensionStart(writer, extension, false);
 				// add the content.
 				writer.writeCharacters(extension.getContent());
 
@@ -321,6 +573,124 @@ class RSSWriter implements Serializable {
 		}
 	}
 
+	private void writeExtensionStart(XMLStreamWriter writer,
+			Extension extension, boolean empty) throws Exception {
+		QName qName = extension.getQName();
+		String prefix = (namespaces == null) ? null : namespaces
+				.prefix(extension);
+		boolean hoisted = prefix != null;
+		if (!hoisted) {
+			prefix = qName.getPrefix();
+		}
+		if (prefix.length() == 0) {
+			if (empty) {
+				writer.writeEmptyElement(qName.getLocalPart());
+			} else {
+				writer.writeStartElement(qName.getLocalPart());
+			}
+		} else {
+			if (empty) {
+				writer.writeEmptyElement(prefix, qName.getLocalPart(), "");
+			} else {
+				writer.writeStartElement(prefix, qName.getLocalPart(), "");
+			}
+		}
+		if (extension.attributes() != null) {
+			for (Attribute attr : extension.attributes()) {
+				// the rss element declares the namespace instead.
+				if (hoisted && namespaces.isRedundant(extension, attr)) {
+					continue;
+				}
+				writer.writeAttribute(attr.getName(), attr.getValue());
+			}
+		}
+	}
+
+	// copies text kept in a temporary file to the writer a block at a time.
+	private void writeSpilled(XMLStreamWriter writer, SpilledText spilled)
+			throws Exception {
+		Reader reader = spilled.openReader();
+		try {
+			char[] buf = new char[8192];
+			int read;
+			while ((read = reader.read(buf)) != -1) {
+				writer.writeCharacters(buf, 0, read);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	// copies preserved markup straight to the UTF-8 writer or replays it on
+	// any other writer.
+	static void writeRaw(XMLStreamWriter writer, String raw) throws Exception {
+		if (writer instanceof IndentingStreamWriter) {
+			// the markup is not indented since that would change it.
+			((IndentingStreamWriter) writer).writeRaw(raw);
+			return;
+		}
+		if (writer instanceof UTF8StreamWriter) {
+			((UTF8StreamWriter) writer).writeRaw(raw);
+			return;
+		}
+		XMLStreamReader reader = getRawInputFactory().createXMLStreamReader(
+				new StringReader(raw));
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					// the names keep their prefixes since the fragment is
+					// read without namespaces.
+					writer.writeStartElement(reader.getLocalName());
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						String prefix = reader.getAttributePrefix(i);
+						writer.writeAttribute((prefix == null || prefix
+								.equals("")) ? reader.getAttributeLocalName(i)
+								: prefix + ":" + reader.getAttributeLocalName(i),
+								reader.getAttributeValue(i));
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					writer.writeEndElement();
+					break;
+				case XMLStreamConstants.CDATA:
+					writer.writeCData(reader.getText());
+					break;
+				case XMLStreamConstants.COMMENT:
+					writer.writeComment(reader.getText());
+					break;
+				case XMLStreamConstants.PROCESSING_INSTRUCTION:
+					writer.writeProcessingInstruction(reader.getPITarget(),
+							reader.getPIData());
+					break;
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					writer.writeEntityRef(reader.getLocalName());
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					writer.writeCharacters(reader.getText());
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static synchronized XMLInputFactory getRawInputFactory() {
+		if (rawInputFactory == null) {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,
+					Boolean.FALSE);
+			factory.setProperty(
+					XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES,
+					Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			rawInputFactory = factory;
+		}
+		return rawInputFactory;
+	}
+
 	void writeGenerator(XMLStreamWriter writer, Generator generator)
 			throws Exception {
 		writer.writeStartElement("generator");
@@ -331,9 +701,8 @@ class RSSWriter implements Serializable {
 	void writeGUID(XMLStreamWriter writer, GUID guid) throws Exception {
 		writer.writeStartElement("guid");
 
-		if (guid.getIsPermaLink() != null) {
-			writer.writeAttribute(guid.getIsPermaLink().getName(), guid
-					.getIsPermaLink().getValue());
+		if (guid.permaLink() != null) {
+			writer.writeAttribute(guid.permaLink().getName(), guid.permaLink().getValue());
 		}
 		writer.writeCharacters(guid.getGuid());
 		writer.writeEndElement();
@@ -450,7 +819,7 @@ class RSSWriter implements Serializable {
 		writer.writeStartElement("source");
 
 		// the attributes should never be null since url is required
-		writer.writeAttribute(source.getUrl().getName(), source.getUrl()
+		writer.writeAttribute(source.url().getName(), source.url()
 				.getValue());
 		writer.writeCharacters(source.getSource());
 		writer.writeEndElement();
@@ -32,12 +32,75 @@ public class RSSpectException extends Exception {
 	 */
 	private static final long serialVersionUID = 2226200267828833784L;
 
+	// set for the threads that should not capture stack traces.
+	private static final ThreadLocal<Boolean> stackless =
+			new ThreadLocal<Boolean>();
+
+	private final ErrorCode errorCode;
+
+	private String context;
+
 	/**
 	 * @param message
 	 *            the message for why the rss feed is not valid.
 	 */
 	public RSSpectException(String message) {
+		this(ErrorCode.UNSPECIFIED, message);
+	}
+
+	/**
+	 * @param errorCode
+	 *            the kind of problem.
+	 * @param message
+	 *            the message for why the rss feed is not valid.
+	 */
+	public RSSpectException(ErrorCode errorCode, String message) {
 		super(message);
+		this.errorCode = (errorCode == null) ? ErrorCode.UNSPECIFIED
+				: errorCode;
+	}
+
+	/**
+	 * @return the kind of problem.
+	 */
+	public ErrorCode getErrorCode() {
+		return errorCode;
+	}
+
+	/**
+	 * @return where in the document the problem was found eg.
+	 *         "pubDate at line 8, column 42" or null if the exception was not
+	 *         thrown while reading a document.
+	 */
+	public String getContext() {
+		return context;
+	}
+
+	void setContext(String context) {
+		this.context = context;
+	}
+
+	/**
+	 * Does not capture the stack trace when the current thread is reading with
+	 * RSSDoc.setStacklessExceptions(true).
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		if (stackless.get() != null) {
+			return this;
+		}
+		return super.fillInStackTrace();
 	}
 
+	// turns stack trace capturing off (or back on) for the current thread and
+	// returns the previous setting.
+	static boolean setStackless(boolean on) {
+		boolean previous = stackless.get() != null;
+		if (on) {
+			stackless.set(Boolean.TRUE);
+		} else {
+			stackless.remove();
+		}
+		return previous;
+	}
 }
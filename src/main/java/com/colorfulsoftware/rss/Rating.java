@@ -43,7 +43,8 @@ public class Rating implements Serializable {
 
 	Rating(String rating) throws RSSpectException {
 		if (rating == null || rating.equals("")) {
-			throw new RSSpectException("rating SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"rating SHOULD NOT be blank.");
 		}
 		this.rating = rating;
 	}
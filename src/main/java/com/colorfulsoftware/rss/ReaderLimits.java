@@ -0,0 +1,102 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * This class contains the resource limits the readers enforce while reading a
+ * document. A read stops with an RSSpectException with the error code
+ * LIMIT_EXCEEDED as soon as one of the limits is crossed, so a huge or deeply
+ * nested feed is rejected before it uses up the heap or the stack. Pass it to
+ * RSSDoc.setReaderLimits().
+ * </p>
+ * 
+ * <p>
+ * A limit of 0 or less means there is no limit.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public class ReaderLimits implements Serializable {
+
+	private static final long serialVersionUID = 5419230465838130386L;
+	private final long maxBytes;
+	private final int maxItems;
+	private final int maxDepth;
+	private final int maxTextLength;
+	private final int maxExtensions;
+
+	/**
+	 * @param maxBytes
+	 *            the maximum number of bytes read from the input.
+	 * @param maxItems
+	 *            the maximum number of items.
+	 * @param maxDepth
+	 *            the maximum element nesting depth including the rss element.
+	 * @param maxTextLength
+	 *            the maximum length in characters of the text between two
+	 *            tags.
+	 * @param maxExtensions
+	 *            the maximum number of extension elements in the whole
+	 *            document.
+	 */
+	public ReaderLimits(long maxBytes, int maxItems, int maxDepth,
+			int maxTextLength, int maxExtensions) {
+		this.maxBytes = maxBytes;
+		this.maxItems = maxItems;
+		this.maxDepth = maxDepth;
+		this.maxTextLength = maxTextLength;
+		this.maxExtensions = maxExtensions;
+	}
+
+	/**
+	 * @return the maximum number of bytes read from the input.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the maximum number of items.
+	 */
+	public int getMaxItems() {
+		return maxItems;
+	}
+
+	/**
+	 * @return the maximum element nesting depth including the rss element.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return the maximum length in characters of the text between two tags.
+	 */
+	public int getMaxTextLength() {
+		return maxTextLength;
+	}
+
+	/**
+	 * @return the maximum number of extension elements in the whole document.
+	 */
+	public int getMaxExtensions() {
+		return maxExtensions;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * <p>
+ * A rendered rss document created by RSSDoc.renderRSSDoc(). It keeps the
+ * plain bytes of the document and the gzip and deflate compressed bytes once
+ * they are first asked for, so a web server can keep the latest rendering of
+ * a feed and serve any content encoding without compressing it again for
+ * every request.
+ * </p>
+ * 
+ * <p>
+ * It is safe to share between threads.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public final class RenderedRSS implements Serializable {
+
+	private static final long serialVersionUID = -3514237011823049772L;
+
+	private final byte[] plain;
+
+	private final String encoding;
+
+	private byte[] gzip;
+
+	private byte[] deflate;
+
+	RenderedRSS(byte[] plain, String encoding) {
+		this.plain = plain;
+		this.encoding = encoding;
+	}
+
+	/**
+	 * @return the xml encoding of the document eg. UTF-8
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * @param compression
+	 *            the compression of the bytes. null is the same as NONE.
+	 * @return the number of bytes eg. for the Content-Length header.
+	 * @throws IOException
+	 *             if the document cannot be compressed.
+	 */
+	public int getLength(Compression compression) throws IOException {
+		return getRendering(compression).length;
+	}
+
+	/**
+	 * @param compression
+	 *            the compression of the bytes. null is the same as NONE.
+	 * @return a copy of the bytes.
+	 * @throws IOException
+	 *             if the document cannot be compressed.
+	 */
+	public byte[] getBytes(Compression compression) throws IOException {
+		return getRendering(compression).clone();
+	}
+
+	/**
+	 * writes the bytes without copying them.
+	 * 
+	 * @param output
+	 *            the target output stream.
+	 * @param compression
+	 *            the compression of the bytes. null is the same as NONE.
+	 * @throws IOException
+	 *             if the document cannot be compressed or written.
+	 */
+	public void writeTo(OutputStream output, Compression compression)
+			throws IOException {
+		output.write(getRendering(compression));
+	}
+
+	private synchronized byte[] getRendering(Compression compression)
+			throws IOException {
+		if (compression == Compression.GZIP) {
+			if (gzip == null) {
+				gzip = compress(compression);
+			}
+			return gzip;
+		}
+		if (compression == Compression.DEFLATE) {
+			if (deflate == null) {
+				deflate = compress(compression);
+			}
+			return deflate;
+		}
+		return plain;
+	}
+
+	private byte[] compress(Compression compression) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				plain.length / 4 + 64);
+		DeflatingOutputStream out = new DeflatingOutputStream(bytes,
+				compression);
+		try {
+			out.write(plain, 0, plain.length);
+			out.finish();
+		} finally {
+			out.release();
+		}
+		return bytes.toByteArray();
+	}
+}
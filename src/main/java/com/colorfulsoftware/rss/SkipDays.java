@@ -50,7 +50,7 @@ public class SkipDays implements Serializable {
 
 	SkipDays(List<Day> skipDays) throws RSSpectException {
 		if (skipDays == null || skipDays.size() == 0) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"skipDays elements should contain at least one <day> sub element.");
 		}
 		this.skipDays = new LinkedList<Day>();
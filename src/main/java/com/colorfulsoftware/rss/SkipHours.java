@@ -61,7 +61,7 @@ public class SkipHours implements Serializable {
 
 	SkipHours(List<Hour> skipHours) throws RSSpectException {
 		if (skipHours == null || skipHours.size() == 0) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"skipHours elements should contain at least one <hour> sub element.");
 		}
 		this.skipHours = new LinkedList<Hour>();
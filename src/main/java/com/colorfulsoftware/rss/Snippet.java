@@ -0,0 +1,274 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>
+ * This class is used by the Item to turn its description into a short plain
+ * text teaser. The description is kept the way the readers produce it, as
+ * escaped html, so both the escaping and the html are undone in one pass over
+ * the text: tags and comments are removed along with the content of script
+ * and style elements, entities are decoded and runs of whitespace become a
+ * single space. Reading stops as soon as the snippet is long enough and the
+ * snippet is then cut back to the last word boundary.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class Snippet {
+
+	// the longest entity name looked for.
+	private static final int MAX_ENTITY = 32;
+
+	private final Reader in;
+
+	private final char[] buf = new char[1024];
+
+	private int pos;
+
+	private int end;
+
+	// characters unread by the html level.
+	private final char[] pushback = new char[MAX_ENTITY + 2];
+
+	private int pushed;
+
+	private Snippet(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * @param in
+	 *            the escaped html.
+	 * @param maxLength
+	 *            the maximum length of the snippet without the trailing
+	 *            "...".
+	 * @return the plain text snippet, ending in "..." if it was cut.
+	 * @throws IOException
+	 *             if the text cannot be read.
+	 */
+	static String extract(Reader in, int maxLength) throws IOException {
+		return new Snippet(in).extract(maxLength);
+	}
+
+	private String extract(int maxLength) throws IOException {
+		StringBuilder text = new StringBuilder(maxLength + 3);
+		boolean space = false;
+		int c;
+		while ((c = next()) != -1) {
+			if (c == '<') {
+				skipMarkup();
+				// a tag separates words.
+				space = true;
+				continue;
+			}
+			if (c == '&') {
+				c = entity();
+			}
+			if (Character.isWhitespace(c) || c == '\u00a0') {
+				space = true;
+				continue;
+			}
+			if (space && text.length() > 0) {
+				if (text.length() == maxLength) {
+					return text.append("...").toString();
+				}
+				text.append(' ');
+			}
+			space = false;
+			if (text.length() == maxLength) {
+				return cut(text);
+			}
+			text.append((char) c);
+		}
+		return text.toString();
+	}
+
+	// cuts a snippet that ends in the middle of a word back to the last space.
+	private static String cut(StringBuilder text) {
+		int space = text.lastIndexOf(" ");
+		if (space > text.length() / 2) {
+			text.setLength(space);
+		}
+		return text.append("...").toString();
+	}
+
+	// skips a tag, a comment or a declaration after its '<'.
+	private void skipMarkup() throws IOException {
+		int c = next();
+		if (c == '!') {
+			if (next() == '-' && next() == '-') {
+				skipPast("-->");
+			} else {
+				skipPast(">");
+			}
+			return;
+		}
+		StringBuilder name = new StringBuilder();
+		while (c != -1 && (Character.isLetterOrDigit(c) || c == ':')) {
+			name.append(Character.toLowerCase((char) c));
+			c = next();
+		}
+		char quote = 0;
+		while (c != -1 && !(c == '>' && quote == 0)) {
+			if (quote == 0 && (c == '"' || c == '\'')) {
+				quote = (char) c;
+			} else if (c == quote) {
+				quote = 0;
+			}
+			c = next();
+		}
+		String tag = name.toString();
+		if (tag.equals("script") || tag.equals("style")) {
+			skipPast("</" + tag);
+			skipPast(">");
+		}
+	}
+
+	// skips the text up to and including the (lower case) marker.
+	private void skipPast(String marker) throws IOException {
+		int matched = 0;
+		int c;
+		while (matched < marker.length() && (c = next()) != -1) {
+			if (Character.toLowerCase((char) c) == marker.charAt(matched)) {
+				matched++;
+			} else {
+				matched = (Character.toLowerCase((char) c) == marker.charAt(0)) ? 1
+						: 0;
+			}
+		}
+	}
+
+	// decodes an html entity after its '&' or returns the '&' itself.
+	private int entity() throws IOException {
+		StringBuilder name = new StringBuilder();
+		int c = next();
+		while (c != -1 && c != ';' && name.length() < MAX_ENTITY
+				&& (Character.isLetterOrDigit(c) || c == '#')) {
+			name.append((char) c);
+			c = next();
+		}
+		if (c == ';') {
+			String decoded = decode(name.toString());
+			if (decoded != null) {
+				// a few entities are two characters long.
+				if (decoded.length() > 1) {
+					unread(decoded.charAt(1));
+				}
+				return decoded.charAt(0);
+			}
+			unread(';');
+		} else if (c != -1) {
+			unread(c);
+		}
+		for (int i = name.length() - 1; i >= 0; i--) {
+			unread(name.charAt(i));
+		}
+		return '&';
+	}
+
+	private static String decode(String name) {
+		if (name.startsWith("#")) {
+			try {
+				int code = (name.length() > 1 && (name.charAt(1) == 'x' || name
+						.charAt(1) == 'X')) ? Integer.parseInt(name
+						.substring(2), 16) : Integer.parseInt(name.substring(1));
+				return (code > 0 && code <= Character.MAX_CODE_POINT) ? new String(
+						Character.toChars(code))
+						: " ";
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return HTMLEntities.resolve(name);
+	}
+
+	private void unread(int c) {
+		pushback[pushed++] = (char) c;
+	}
+
+	// the next character of the html, with the escaping of the stored text
+	// undone.
+	private int next() throws IOException {
+		if (pushed > 0) {
+			return pushback[--pushed];
+		}
+		int c = read();
+		if (c != '&') {
+			return c;
+		}
+		// the stored text only uses these escapes.
+		int c1 = read();
+		if (c1 == 'a' && peek("mp;")) {
+			return '&';
+		} else if (c1 == 'l' && peek("t;")) {
+			return '<';
+		} else if (c1 == 'g' && peek("t;")) {
+			return '>';
+		}
+		if (c1 != -1) {
+			pos--;
+		}
+		return '&';
+	}
+
+	// consumes the rest of an escape if it is next in the buffer.
+	private boolean peek(String rest) throws IOException {
+		if (end - pos < rest.length()) {
+			compact();
+		}
+		if (end - pos < rest.length()) {
+			return false;
+		}
+		for (int i = 0; i < rest.length(); i++) {
+			if (buf[pos + i] != rest.charAt(i)) {
+				return false;
+			}
+		}
+		pos += rest.length();
+		return true;
+	}
+
+	private int read() throws IOException {
+		if (pos == end) {
+			pos = end = 0;
+			int read = in.read(buf, 0, buf.length);
+			if (read <= 0) {
+				return -1;
+			}
+			end = read;
+		}
+		return buf[pos++];
+	}
+
+	// moves the unread characters to the front of the buffer and fills the
+	// rest.
+	private void compact() throws IOException {
+		// keep the last character read so that next() can step back over it.
+		int keep = (pos > 0) ? pos - 1 : 0;
+		System.arraycopy(buf, keep, buf, 0, end - keep);
+		end -= keep;
+		pos -= keep;
+		int read = in.read(buf, end, buf.length - end);
+		if (read > 0) {
+			end += read;
+		}
+	}
+}
@@ -69,13 +69,14 @@ public class Source implements Serializable {
 	Source(Attribute url, String source) throws RSSpectException {
 		// make sure the url attribute is present
 		if (url == null || !url.getName().equals("url")) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ATTRIBUTE,
 					"source elements MUST contain a url attribute.");
 		}
 		this.url = new Attribute(url.getName(), url.getValue());
 
 		if (source == null || source.equals("")) {
-			throw new RSSpectException("source SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"source SHOULD NOT be blank.");
 		}
 		this.source = source;
 	}
@@ -99,6 +100,11 @@ public class Source implements Serializable {
 		return source;
 	}
 
+	// the url attribute without a copy for the RSSWriter.
+	Attribute url() {
+		return url;
+	}
+
 	/**
 	 * Shows the contents of the &lt;source> element.
 	 */
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>
+ * This class is used by the Description and Extension elements to refer to
+ * text that was too long to keep in memory while a document was being read.
+ * The text is kept UTF-8 encoded in a temporary file that is read again each
+ * time it is needed. The copies of an element share the same SpilledText.
+ * </p>
+ * <p>
+ * The file is deleted by delete(), which RSSDoc.deleteSpilledText() calls for
+ * a whole document. Files of texts that were garbage collected without being
+ * deleted are removed the next time text is spilled or read, and any file
+ * left when the JVM exits is removed then.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class SpilledText {
+
+	// the cleaners of the texts that were garbage collected.
+	private static final ReferenceQueue<SpilledText> unreachable = new ReferenceQueue<SpilledText>();
+
+	// keeps the cleaners of the files that still exist reachable.
+	private static final Set<Cleaner> cleaners = new HashSet<Cleaner>();
+
+	// one hook for all the files rather than File.deleteOnExit(), which keeps
+	// every path until the JVM exits even after the file is deleted.
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("rsspect spill cleaner") {
+			@Override
+			public void run() {
+				Cleaner[] remaining;
+				synchronized (cleaners) {
+					remaining = cleaners.toArray(new Cleaner[cleaners.size()]);
+				}
+				for (Cleaner cleaner : remaining) {
+					cleaner.clean();
+				}
+			}
+		});
+	}
+
+	// deletes the file of a text once, when it is released or collected.
+	private static final class Cleaner extends PhantomReference<SpilledText> {
+		private final File file;
+
+		private Cleaner(SpilledText text, File file) {
+			super(text, unreachable);
+			this.file = file;
+		}
+
+		private void clean() {
+			synchronized (cleaners) {
+				if (!cleaners.remove(this)) {
+					return;
+				}
+			}
+			file.delete();
+		}
+	}
+
+	private final File file;
+
+	private final int length;
+
+	private final Cleaner cleaner;
+
+	SpilledText(File file, int length) {
+		this.file = file;
+		this.length = length;
+		this.cleaner = new Cleaner(this, file);
+		synchronized (cleaners) {
+			cleaners.add(cleaner);
+		}
+	}
+
+	/**
+	 * deletes the files of the texts that were garbage collected.
+	 */
+	static void deleteUnreachable() {
+		Reference<? extends SpilledText> collected;
+		while ((collected = unreachable.poll()) != null) {
+			((Cleaner) collected).clean();
+		}
+	}
+
+	/**
+	 * deletes the file. The text cannot be read afterwards.
+	 */
+	void delete() {
+		cleaner.clean();
+	}
+
+	/**
+	 * @return the number of characters in the text.
+	 */
+	int length() {
+		return length;
+	}
+
+	/**
+	 * @return a reader over the text. The caller closes it.
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	Reader openReader() throws IOException {
+		deleteUnreachable();
+		return new BufferedReader(new InputStreamReader(new FileInputStream(
+				file), "UTF-8"));
+	}
+
+	/**
+	 * @return the whole text.
+	 */
+	String read() {
+		try {
+			Reader reader = openReader();
+			try {
+				StringBuilder text = new StringBuilder(length);
+				char[] buf = new char[8192];
+				int read;
+				while ((read = reader.read(buf)) != -1) {
+					text.append(buf, 0, read);
+				}
+				return text.toString();
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("the text kept in "
+					+ file.getPath() + " cannot be read.", e);
+		}
+	}
+}
@@ -58,7 +58,8 @@ public class TTL implements Serializable {
 
 	TTL(String ttl) throws RSSpectException {
 		if (ttl == null || ttl.equals("")) {
-			throw new RSSpectException("ttl SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"ttl SHOULD NOT be blank.");
 		}
 		this.ttl = ttl;
 	}
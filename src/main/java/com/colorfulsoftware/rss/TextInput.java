@@ -78,31 +78,31 @@ public class TextInput implements Serializable {
 			throws RSSpectException {
 		// make sure title is present
 		if (title == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"textInput elements MUST contain a title element.");
 		}
 		this.title = new Title(title.getTitle());
 
 		// make sure description is present
 		if (description == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"textInput elements MUST contain a description element.");
 		}
-		this.description = new Description(description.getDescription());
+		this.description = new Description(description);
 
 		// make sure name is present
 		if (name == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"textInput elements MUST contain a name element.");
 		}
 		this.name = new Name(name.getName());
 
 		// make sure link is present
 		if (link == null) {
-			throw new RSSpectException(
+			throw new RSSpectException(ErrorCode.MISSING_ELEMENT,
 					"textInput elements MUST contain a link element.");
 		}
-		this.link = new Link(link.getLink());
+		this.link = new Link(link);
 		;
 	}
 
@@ -124,7 +124,7 @@ public class TextInput implements Serializable {
 	 * @return the description object.
 	 */
 	public Description getDescription() {
-		return new Description(description.getDescription());
+		return new Description(description);
 	}
 
 	/**
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * <p>
+ * This class is used by the RSSReader to collect the text of an element. The
+ * text is kept in memory until it grows past the spill threshold of the
+ * RSSDoc and is then written to a temporary file instead so that full text
+ * feeds do not have to fit in the heap.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class TextSpool implements Appendable {
+
+	private final int threshold;
+
+	private final File directory;
+
+	private final StringBuilder text = new StringBuilder();
+
+	private File file;
+
+	private Writer out;
+
+	private int length;
+
+	/**
+	 * @param threshold
+	 *            the number of characters kept in memory.
+	 * @param directory
+	 *            the directory of the temporary file or null for the default
+	 *            temporary directory.
+	 */
+	TextSpool(int threshold, File directory) {
+		this.threshold = threshold;
+		this.directory = directory;
+	}
+
+	public TextSpool append(CharSequence csq) throws IOException {
+		if (csq == null) {
+			csq = "null";
+		}
+		return append(csq, 0, csq.length());
+	}
+
+	public TextSpool append(CharSequence csq, int start, int end)
+			throws IOException {
+		if (out == null) {
+			text.append(csq, start, end);
+			if (text.length() > threshold) {
+				spill();
+			}
+		} else {
+			out.append(csq, start, end);
+			length += end - start;
+		}
+		return this;
+	}
+
+	public TextSpool append(char c) throws IOException {
+		return append(String.valueOf(c));
+	}
+
+	/**
+	 * @return true if the text was moved to a temporary file.
+	 */
+	boolean isSpilled() {
+		return file != null;
+	}
+
+	/**
+	 * @return the text in the temporary file. No more text can be appended.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	SpilledText toSpilledText() throws IOException {
+		out.close();
+		return new SpilledText(file, length);
+	}
+
+	/**
+	 * deletes the temporary file of a read that failed.
+	 */
+	void discard() {
+		if (file != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				// the file is deleted anyway.
+			}
+			file.delete();
+		}
+	}
+
+	/**
+	 * @return the text if it was not spilled.
+	 */
+	@Override
+	public String toString() {
+		return text.toString();
+	}
+
+	private void spill() throws IOException {
+		SpilledText.deleteUnreachable();
+		file = File.createTempFile("rsspect", ".txt", directory);
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(file), "UTF-8"), 8192);
+			out.append(text);
+		} catch (IOException e) {
+			file.delete();
+			throw e;
+		}
+		length = text.length();
+		text.setLength(0);
+		text.trimToSize();
+	}
+}
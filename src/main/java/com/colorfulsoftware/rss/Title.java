@@ -47,7 +47,8 @@ public class Title implements Serializable {
 
 	Title(String title) throws RSSpectException {
 		if (title == null || title.equals("")) {
-			throw new RSSpectException("title SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"title SHOULD NOT be blank.");
 		}
 		this.title = title;
 	}
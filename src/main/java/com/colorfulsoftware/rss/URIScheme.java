@@ -36,9 +36,10 @@ class URIScheme implements Serializable {
 
 	private static final long serialVersionUID = -3125832208350819540L;
 
-	private Map<String, String> uriScheme = new HashMap<String, String>();
+	// the registry is shared by every instance so it is only built once.
+	private static final Map<String, String> uriScheme = new HashMap<String, String>();
 
-	URIScheme() {
+	static {
 		uriScheme.put("aaa", null);
 		uriScheme.put("aaas", null);
 		uriScheme.put("acap", null);
@@ -116,7 +117,7 @@ class URIScheme implements Serializable {
 		uriScheme.put("wais", null);
 	}
 
-	public boolean contains(String scheme) {
+	static boolean contains(String scheme) {
 		return uriScheme.containsKey(scheme);
 	}
 }
@@ -41,19 +41,21 @@ public class URL implements Serializable {
 
 	private final String url;
 
-	URL(String url) throws RSSpectException {
+	URL(String url, ValidationLevel validation) throws RSSpectException {
 
 		if (url == null || url.equals("")) {
-			throw new RSSpectException("url SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"url SHOULD NOT be blank.");
 		}
 
 		String urlLocal = url.trim();
-		if (urlLocal.length() > 0
-				&& new URIScheme().contains(urlLocal.substring(0, urlLocal
-						.indexOf(":")))) {
+		if (!validation.checkValues()
+				|| (urlLocal.length() > 0 && URIScheme.contains(urlLocal
+						.substring(0, urlLocal.indexOf(":"))))) {
 			this.url = url;
 		} else {
-			throw new RSSpectException("link elements must start with a valid "
+			throw new RSSpectException(ErrorCode.INVALID_VALUE,
+					"link elements must start with a valid "
 					+ "Uniform Resource Identifer (URI) Schemes.  "
 					+ "See http://www.iana.org. Yours started with: '" + url
 					+ "'");
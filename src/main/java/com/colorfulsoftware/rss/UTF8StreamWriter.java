@@ -0,0 +1,495 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * <p>
+ * This class is used by the RSSDoc to write UTF-8 documents straight into a
+ * byte buffer. The tags of the rss elements are encoded once and copied in as
+ * byte templates, and text is escaped and encoded in a single pass over its
+ * characters. The output is the same as the output of the JDK's
+ * XMLStreamWriter for the calls the RSSWriter makes, including its escaping
+ * (&amp;, &lt; and &gt; in text plus &quot; in attribute values).
+ * </p>
+ *
+ * <p>
+ * Like the JDK's writer it does not repair namespaces and closing it does not
+ * close the underlying output stream.
+ * </p>
+ *
+ * @author Bill Brown
+ *
+ */
+class UTF8StreamWriter implements XMLStreamWriter {
+
+	// the start and end tags of the rss elements.
+	private static final Map<String, byte[][]> tags = new HashMap<String, byte[][]>(
+			64);
+
+	static {
+		String[] names = { "rss", "channel", "item", "title", "link",
+				"description", "language", "copyright", "managingEditor",
+				"webMaster", "pubDate", "lastBuildDate", "category",
+				"generator", "docs", "cloud", "ttl", "image", "rating",
+				"textInput", "skipHours", "skipDays", "hour", "day", "author",
+				"comments", "enclosure", "guid", "source", "url", "width",
+				"height", "name" };
+		for (String name : names) {
+			tags.put(name, tag(name));
+		}
+	}
+
+	private static final byte[] LT = bytes("&lt;");
+	private static final byte[] GT = bytes("&gt;");
+	private static final byte[] AMP = bytes("&amp;");
+	private static final byte[] QUOT = bytes("&quot;");
+	private static final byte[] CLOSE = bytes(">");
+	private static final byte[] CLOSE_EMPTY = bytes("/>");
+	private static final byte[] ATTRIBUTE_START = bytes(" ");
+	private static final byte[] ATTRIBUTE_EQUALS = bytes("=\"");
+	private static final byte[] ATTRIBUTE_END = bytes("\"");
+
+	private final OutputStream out;
+
+	private final byte[] buf;
+
+	private int count = 0;
+
+	// a surrogate waiting for the next character. Like the JDK's utf-8 writer
+	// the next character is always combined with it.
+	private int surrogate = 0;
+
+	// the end tags of the open elements.
+	private byte[][] open = new byte[16][];
+
+	private int depth = 0;
+
+	// a start tag is waiting to be closed with '>' or '/>'.
+	private boolean startOpen = false;
+
+	private boolean emptyOpen = false;
+
+	private NamespaceContext namespaceContext;
+
+	// the bytes written since startFragment() and the start of the ones still
+	// in the buffer.
+	private ByteArrayOutputStream fragment;
+
+	private int fragmentStart;
+
+	UTF8StreamWriter(OutputStream out) {
+		this(out, 8192);
+	}
+
+	UTF8StreamWriter(OutputStream out, int bufferSize) {
+		this.out = out;
+		this.buf = new byte[bufferSize];
+	}
+
+	public void writeStartDocument() throws XMLStreamException {
+		writeStartDocument(null, "1.0");
+	}
+
+	public void writeStartDocument(String version) throws XMLStreamException {
+		writeStartDocument(null, version);
+	}
+
+	public void writeStartDocument(String encoding, String version)
+			throws XMLStreamException {
+		if (encoding != null && !encoding.equalsIgnoreCase("UTF-8")) {
+			throw new XMLStreamException(
+					"Underlying stream encoding 'UTF-8' and input paramter for writeStartDocument() method '"
+							+ encoding + "' do not match.");
+		}
+		raw("<?xml version=\"");
+		text((version == null) ? "1.0" : version, false);
+		raw("\"");
+		if (encoding != null) {
+			raw(" encoding=\"");
+			text(encoding, false);
+			raw("\"");
+		}
+		raw("?>");
+	}
+
+	public void writeEndDocument() throws XMLStreamException {
+		while (depth > 0) {
+			writeEndElement();
+		}
+		closeStart();
+	}
+
+	public void writeProcessingInstruction(String target)
+			throws XMLStreamException {
+		closeStart();
+		raw("<?");
+		raw(target);
+		raw("?>");
+	}
+
+	public void writeProcessingInstruction(String target, String data)
+			throws XMLStreamException {
+		closeStart();
+		raw("<?");
+		raw(target);
+		raw(" ");
+		raw(data);
+		raw("?>");
+	}
+
+	public void writeDTD(String dtd) throws XMLStreamException {
+		closeStart();
+		raw(dtd);
+	}
+
+	public void writeComment(String data) throws XMLStreamException {
+		closeStart();
+		raw("<!--");
+		raw(data);
+		raw("-->");
+	}
+
+	public void writeStartElement(String localName) throws XMLStreamException {
+		byte[][] tag = getTag(localName);
+		closeStart();
+		raw(tag[0]);
+		push(tag[1]);
+		startOpen = true;
+	}
+
+	public void writeStartElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		writeStartElement(localName);
+	}
+
+	public void writeStartElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		writeStartElement(qualify(prefix, localName));
+	}
+
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		byte[][] tag = getTag(localName);
+		closeStart();
+		raw(tag[0]);
+		startOpen = true;
+		emptyOpen = true;
+	}
+
+	public void writeEmptyElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		writeEmptyElement(localName);
+	}
+
+	public void writeEmptyElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		writeEmptyElement(qualify(prefix, localName));
+	}
+
+	public void writeEndElement() throws XMLStreamException {
+		if (depth == 0) {
+			throw new XMLStreamException("No element was found to write.");
+		}
+		closeStart();
+		raw(open[--depth]);
+		open[depth] = null;
+	}
+
+	public void writeAttribute(String localName, String value)
+			throws XMLStreamException {
+		if (!startOpen) {
+			throw new XMLStreamException(
+					"Attribute not associated with any element.");
+		}
+		raw(ATTRIBUTE_START);
+		text(localName, false);
+		raw(ATTRIBUTE_EQUALS);
+		text(value, true);
+		raw(ATTRIBUTE_END);
+	}
+
+	public void writeAttribute(String namespaceURI, String localName,
+			String value) throws XMLStreamException {
+		writeAttribute(localName, value);
+	}
+
+	public void writeAttribute(String prefix, String namespaceURI,
+			String localName, String value) throws XMLStreamException {
+		writeAttribute(qualify(prefix, localName), value);
+	}
+
+	public void writeNamespace(String prefix, String namespaceURI)
+			throws XMLStreamException {
+		if (prefix == null || prefix.equals("") || prefix.equals("xmlns")) {
+			writeDefaultNamespace(namespaceURI);
+		} else {
+			writeAttribute("xmlns:" + prefix, namespaceURI);
+		}
+	}
+
+	public void writeDefaultNamespace(String namespaceURI)
+			throws XMLStreamException {
+		writeAttribute("xmlns", namespaceURI);
+	}
+
+	public void writeCharacters(String text) throws XMLStreamException {
+		closeStart();
+		text(text, false);
+	}
+
+	public void writeCharacters(char[] text, int start, int len)
+			throws XMLStreamException {
+		writeCharacters(new String(text, start, len));
+	}
+
+	public void writeCData(String data) throws XMLStreamException {
+		closeStart();
+		raw("<![CDATA[");
+		// a ']]>' in the data ends one section and starts another.
+		raw(data.replace("]]>", "]]]]><![CDATA[>"));
+		raw("]]>");
+	}
+
+	public void writeEntityRef(String name) throws XMLStreamException {
+		closeStart();
+		raw("&");
+		text(name, false);
+		raw(";");
+	}
+
+	public String getPrefix(String uri) throws XMLStreamException {
+		return (namespaceContext == null) ? null : namespaceContext
+				.getPrefix(uri);
+	}
+
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		// namespaces are not repaired.
+	}
+
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		// namespaces are not repaired.
+	}
+
+	public void setNamespaceContext(NamespaceContext context)
+			throws XMLStreamException {
+		this.namespaceContext = context;
+	}
+
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException("Property '" + name
+				+ "' is not supported.");
+	}
+
+	public void flush() throws XMLStreamException {
+		try {
+			drain();
+			out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	public void close() throws XMLStreamException {
+		flush();
+	}
+
+	/**
+	 * starts keeping a copy of the bytes that are written until endFragment()
+	 * is called.
+	 */
+	void startFragment() throws XMLStreamException {
+		closeStart();
+		fragment = new ByteArrayOutputStream(512);
+		fragmentStart = count;
+	}
+
+	/**
+	 * @return the bytes written since startFragment().
+	 */
+	byte[] endFragment() {
+		fragment.write(buf, fragmentStart, count - fragmentStart);
+		byte[] bytes = fragment.toByteArray();
+		fragment = null;
+		return bytes;
+	}
+
+	/**
+	 * copies bytes kept by endFragment() to the output.
+	 */
+	void writeFragment(byte[] bytes) throws XMLStreamException {
+		closeStart();
+		raw(bytes);
+	}
+
+	/**
+	 * copies markup that is already escaped to the output.
+	 */
+	void writeRaw(String markup) throws XMLStreamException {
+		closeStart();
+		raw(markup);
+	}
+
+	// finish the start tag waiting for its attributes.
+	private void closeStart() throws XMLStreamException {
+		if (startOpen) {
+			raw(emptyOpen ? CLOSE_EMPTY : CLOSE);
+			startOpen = false;
+			emptyOpen = false;
+		}
+	}
+
+	private void push(byte[] endTag) {
+		if (depth == open.length) {
+			byte[][] grown = new byte[open.length * 2][];
+			System.arraycopy(open, 0, grown, 0, open.length);
+			open = grown;
+		}
+		open[depth++] = endTag;
+	}
+
+	// writes a template of ascii bytes.
+	private void raw(byte[] bytes) throws XMLStreamException {
+		int start = 0;
+		if (surrogate != 0) {
+			encode(bytes[0]);
+			start = 1;
+		}
+		if (count + bytes.length > buf.length) {
+			drain();
+			if (bytes.length > buf.length) {
+				if (fragment != null) {
+					fragment.write(bytes, start, bytes.length - start);
+				}
+				write(bytes, start, bytes.length - start);
+				return;
+			}
+		}
+		System.arraycopy(bytes, start, buf, count, bytes.length - start);
+		count += bytes.length - start;
+	}
+
+	// encodes text that is not escaped, such as markup or the body of a
+	// comment, processing instruction or CDATA section.
+	private void raw(String text) throws XMLStreamException {
+		for (int i = 0; i < text.length(); i++) {
+			encode(text.charAt(i));
+		}
+	}
+
+	// escapes and encodes the text in one pass.
+	private void text(String text, boolean attribute)
+			throws XMLStreamException {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '<') {
+				raw(LT);
+			} else if (c == '>') {
+				raw(GT);
+			} else if (c == '&') {
+				raw(AMP);
+			} else if (c == '"' && attribute) {
+				raw(QUOT);
+			} else if (c < 0x80 && surrogate == 0 && count < buf.length) {
+				buf[count++] = (byte) c;
+			} else {
+				encode(c);
+			}
+		}
+	}
+
+	// the same utf-8 encoding as the JDK's writer.
+	private void encode(int c) throws XMLStreamException {
+		if (count + 4 > buf.length) {
+			drain();
+		}
+		if (surrogate != 0) {
+			int uc = (((surrogate & 0x3ff) << 10) | (c & 0x3ff)) + 0x10000;
+			buf[count++] = (byte) (0xF0 | (uc >> 18));
+			buf[count++] = (byte) (0x80 | ((uc >> 12) & 0x3F));
+			buf[count++] = (byte) (0x80 | ((uc >> 6) & 0x3F));
+			buf[count++] = (byte) (0x80 | (uc & 0x3F));
+			surrogate = 0;
+		} else if (c < 0x80) {
+			buf[count++] = (byte) c;
+		} else if (c < 0x800) {
+			buf[count++] = (byte) (0xC0 | (c >> 6));
+			buf[count++] = (byte) (0x80 | (c & 0x3F));
+		} else if (c >= 0xD800 && c <= 0xDFFF) {
+			surrogate = c;
+		} else {
+			buf[count++] = (byte) (0xE0 | (c >> 12));
+			buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buf[count++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	private void drain() throws XMLStreamException {
+		if (fragment != null) {
+			fragment.write(buf, fragmentStart, count - fragmentStart);
+			fragmentStart = 0;
+		}
+		if (count > 0) {
+			write(buf, 0, count);
+			count = 0;
+		}
+	}
+
+	private void write(byte[] bytes, int off, int len)
+			throws XMLStreamException {
+		try {
+			out.write(bytes, off, len);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	private static byte[][] getTag(String name) {
+		byte[][] tag = tags.get(name);
+		return (tag == null) ? tag(name) : tag;
+	}
+
+	private static String qualify(String prefix, String localName) {
+		return (prefix == null || prefix.equals("")) ? localName : prefix
+				+ ":" + localName;
+	}
+
+	private static byte[][] tag(String name) {
+		return new byte[][] { bytes("<" + name), bytes("</" + name + ">") };
+	}
+
+	private static byte[] bytes(String text) {
+		try {
+			return text.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+/**
+ * <p>
+ * The amount of checking the RSSDoc factory methods (and therefore the
+ * readers) perform while building the immutable RSS elements.
+ * </p>
+ *
+ * <ul>
+ * <li><b>STRICT</b> - the default. Every element is checked against the <a
+ * href="http://cyber.law.harvard.edu/rss/rss.html">RSS 2.0 specification</a>.</li>
+ * <li><b>LENIENT</b> - required elements, attributes and namespace bindings
+ * are still checked but element values are not. e.g. a width of 200, an hour
+ * of 24, a day of "monday" or a link with an unregistered URI scheme are
+ * accepted.</li>
+ * <li><b>TRUSTED</b> - no specification checks at all. Only missing values
+ * the object model cannot be built without are reported. Use this for feeds
+ * that were already validated, such as feeds written by RSSpect itself.</li>
+ * </ul>
+ *
+ * @author Bill Brown
+ *
+ */
+public enum ValidationLevel {
+
+	/**
+	 * check the structure and the values of every element.
+	 */
+	STRICT,
+
+	/**
+	 * check the structure of every element but not the element values.
+	 */
+	LENIENT,
+
+	/**
+	 * do not check anything that is not needed to build the object model.
+	 */
+	TRUSTED;
+
+	// true if element values such as ranges and enumerations should be
+	// checked.
+	boolean checkValues() {
+		return this == STRICT;
+	}
+
+	// true if required attributes and namespace bindings should be checked.
+	boolean checkStructure() {
+		return this != TRUSTED;
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * <p>
+ * This class contains every problem found by RSSDoc.validate() or by a
+ * recovering RSSDoc.readRSSToBean() in a single pass over an rss document.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public class ValidationReport implements Serializable {
+
+	private static final long serialVersionUID = 8810312479523519271L;
+	private final List<Violation> violations = new LinkedList<Violation>();
+
+	/**
+	 * creates an empty report to pass to RSSDoc.readRSSToBean(InputStream,
+	 * ValidationReport).
+	 */
+	public ValidationReport() {
+	}
+
+	void addViolation(Violation violation) {
+		violations.add(violation);
+	}
+
+	/**
+	 * @return true if no violations were found.
+	 */
+	public boolean isValid() {
+		return violations.isEmpty();
+	}
+
+	/**
+	 * @return the violations in document order.
+	 */
+	public List<Violation> getViolations() {
+		return Collections.unmodifiableList(violations);
+	}
+
+	/**
+	 * @param path
+	 *            the element path eg. /rss/channel/item
+	 * @return the violations of the elements with the given path. For
+	 *         example the violations for /rss/channel/item are the items
+	 *         that were skipped by a recovering read.
+	 */
+	public List<Violation> getViolations(String path) {
+		List<Violation> matching = new LinkedList<Violation>();
+		for (Violation violation : violations) {
+			if (violation.getPath().equals(path)) {
+				matching.add(violation);
+			}
+		}
+		return Collections.unmodifiableList(matching);
+	}
+
+	/**
+	 * Shows one violation per line.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Violation violation : violations) {
+			sb.append(violation).append('\n');
+		}
+		return sb.toString();
+	}
+}
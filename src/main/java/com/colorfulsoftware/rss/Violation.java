@@ -0,0 +1,118 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * This class describes one problem found while validating an rss document.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public class Violation implements Serializable {
+
+	private static final long serialVersionUID = -2203637913370658153L;
+	private final ErrorCode errorCode;
+	private final String path;
+	private final int lineNumber;
+	private final int columnNumber;
+	private final String message;
+	private final boolean fatal;
+
+	// use the ValidationReport.
+	Violation(ErrorCode errorCode, String path, int lineNumber,
+			int columnNumber, String message, boolean fatal) {
+		this.errorCode = errorCode;
+		this.path = path;
+		this.lineNumber = lineNumber;
+		this.columnNumber = columnNumber;
+		this.message = message;
+		this.fatal = fatal;
+	}
+
+	/**
+	 * @return the kind of problem.
+	 */
+	public ErrorCode getErrorCode() {
+		return errorCode;
+	}
+
+	/**
+	 * @return the path of the offending element eg. /rss/channel/item/pubDate
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the line of the offending element or -1 if it is not known.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the column of the offending element or -1 if it is not known.
+	 */
+	public int getColumnNumber() {
+		return columnNumber;
+	}
+
+	/**
+	 * @return the reason the element is not valid.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return true if the document is not well formed xml and the rest of it
+	 *         could not be read.
+	 */
+	public boolean isFatal() {
+		return fatal;
+	}
+
+	/**
+	 * @return true if the path, position and message are equal.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof Violation)) {
+			return false;
+		}
+		return this.toString().equals(obj.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	/**
+	 * Shows the violation in the form of 'path [line:column] message'.
+	 */
+	@Override
+	public String toString() {
+		return path + " [" + lineNumber + ":" + columnNumber + "] " + message;
+	}
+}
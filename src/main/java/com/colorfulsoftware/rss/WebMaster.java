@@ -44,7 +44,8 @@ public class WebMaster implements Serializable {
 
 	WebMaster(String webMaster) throws RSSpectException {
 		if (webMaster == null || webMaster.equals("")) {
-			throw new RSSpectException("webMaster SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"webMaster SHOULD NOT be blank.");
 		}
 		this.webMaster = webMaster;
 	}
@@ -41,20 +41,24 @@ public class Width implements Serializable {
 
 	private final String width;
 
-	Width(String width) throws RSSpectException {
+	Width(String width, ValidationLevel validation) throws RSSpectException {
 
 		if (width == null || width.equals("")) {
-			throw new RSSpectException("width SHOULD NOT be blank.");
+			throw new RSSpectException(ErrorCode.BLANK_VALUE,
+					"width SHOULD NOT be blank.");
 		}
 
-		try {
-			int localWidth = Integer.parseInt(width);
-			if (localWidth > 144) {
-				throw new RSSpectException(
-						"width cannot be greater than 144px.");
+		if (validation.checkValues()) {
+			try {
+				int localWidth = Integer.parseInt(width);
+				if (localWidth > 144) {
+					throw new RSSpectException(ErrorCode.INVALID_VALUE,
+							"width cannot be greater than 144px.");
+				}
+			} catch (NumberFormatException n) {
+				throw new RSSpectException(ErrorCode.INVALID_VALUE,
+						"invalid number format for width.");
 			}
-		} catch (NumberFormatException n) {
-			throw new RSSpectException("invalid number format for width.");
 		}
 
 		this.width = width;
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <p>
+ * This class contains the elements and attributes the readers keep in the
+ * xhtml content of an extension, eg. an &lt;xhtml:body> element. Pass it to
+ * RSSDoc.setXHTMLFilter() to have the content cleaned up while it is read
+ * instead of running it through a separate sanitizer afterwards.
+ * </p>
+ * 
+ * <ul>
+ * <li>Elements that are not allowed are left out but their content is kept.</li>
+ * <li>Removed elements such as script and style are left out together with
+ * their content.</li>
+ * <li>Attributes that are not allowed are left out, as are URI attributes eg.
+ * href and src whose scheme is not http, https or mailto. Relative URIs are
+ * kept. Namespace declarations are always kept.</li>
+ * </ul>
+ * 
+ * <p>
+ * Names are the local names of the elements and attributes and are not case
+ * sensitive.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+public class XHTMLFilter implements Serializable {
+
+	private static final long serialVersionUID = -4096437717930216551L;
+	private final Set<String> allowedElements;
+	private final Set<String> allowedAttributes;
+	private final Set<String> removedElements;
+
+	// the attributes that hold a URI.
+	private static final Set<String> uriAttributes = new HashSet<String>(
+			Arrays.asList("action", "background", "cite", "classid",
+					"codebase", "data", "dynsrc", "formaction", "href",
+					"longdesc", "lowsrc", "poster", "profile", "src",
+					"usemap"));
+
+	// the schemes URI attributes may have.
+	private static final Set<String> allowedSchemes = new HashSet<String>(
+			Arrays.asList("http", "https", "mailto"));
+
+	/**
+	 * @param allowedElements
+	 *            the elements to keep eg. p, a, em, img or null to keep all
+	 *            elements.
+	 * @param allowedAttributes
+	 *            the attributes to keep eg. href, src, alt or null to keep all
+	 *            attributes.
+	 * @param removedElements
+	 *            the elements to leave out together with their content eg.
+	 *            script and style or null for none.
+	 */
+	public XHTMLFilter(Set<String> allowedElements,
+			Set<String> allowedAttributes, Set<String> removedElements) {
+		this.allowedElements = lowerCase(allowedElements);
+		this.allowedAttributes = lowerCase(allowedAttributes);
+		this.removedElements = lowerCase(removedElements);
+	}
+
+	/**
+	 * @return the elements to keep or null if all elements are kept.
+	 */
+	public Set<String> getAllowedElements() {
+		return allowedElements;
+	}
+
+	/**
+	 * @return the attributes to keep or null if all attributes are kept.
+	 */
+	public Set<String> getAllowedAttributes() {
+		return allowedAttributes;
+	}
+
+	/**
+	 * @return the elements that are left out together with their content or
+	 *         null if there are none.
+	 */
+	public Set<String> getRemovedElements() {
+		return removedElements;
+	}
+
+	boolean allowsElement(String localName) {
+		return allowedElements == null
+				|| allowedElements.contains(localName.toLowerCase(Locale.ENGLISH));
+	}
+
+	boolean removesElement(String localName) {
+		return removedElements != null
+				&& removedElements.contains(localName.toLowerCase(Locale.ENGLISH));
+	}
+
+	boolean allowsAttribute(String localName, String value) {
+		if (allowedAttributes != null
+				&& !allowedAttributes.contains(localName
+						.toLowerCase(Locale.ENGLISH))) {
+			return false;
+		}
+		return !uriAttributes.contains(localName.toLowerCase(Locale.ENGLISH))
+				|| allowsURI(value);
+	}
+
+	private static boolean allowsURI(String value) {
+		// browsers ignore whitespace and control characters anywhere in the
+		// scheme, eg. jav&#x09;ascript:
+		StringBuilder uri = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c > ' ' && c != 0x7F) {
+				uri.append(c);
+			}
+		}
+		for (int i = 0; i < uri.length(); i++) {
+			char c = uri.charAt(i);
+			if (c == ':') {
+				return allowedSchemes.contains(uri.substring(0, i)
+						.toLowerCase(Locale.ENGLISH));
+			}
+			if (c == '/' || c == '?' || c == '#') {
+				// a relative URI.
+				return true;
+			}
+		}
+		return true;
+	}
+
+	private static Set<String> lowerCase(Set<String> names) {
+		if (names == null) {
+			return null;
+		}
+		Set<String> lowerCase = new HashSet<String>();
+		for (String name : names) {
+			lowerCase.add(name.toLowerCase(Locale.ENGLISH));
+		}
+		return Collections.unmodifiableSet(lowerCase);
+	}
+}
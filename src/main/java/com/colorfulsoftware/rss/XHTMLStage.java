@@ -0,0 +1,206 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>
+ * This class is used by the RSSReader to turn the xhtml content of an
+ * extension back into markup. It reads the events of the content once,
+ * escapes the text and attribute values in a single pass into a buffer that
+ * is reused from one element to the next and leaves out what the XHTMLFilter
+ * of the RSSDoc does not allow.
+ * </p>
+ * 
+ * @author Bill Brown
+ * 
+ */
+final class XHTMLStage {
+
+	private final XHTMLFilter filter;
+
+	private StringBuilder xhtml = new StringBuilder(256);
+
+	// the names of the open elements or null for the ones left out.
+	private String[] open = new String[16];
+
+	/**
+	 * @param filter
+	 *            the elements and attributes to keep or null to keep
+	 *            everything.
+	 */
+	XHTMLStage(XHTMLFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * @param reader
+	 *            the reader on the start tag of the element containing the
+	 *            xhtml.
+	 * @return the markup of the content of the element. The reader is left on
+	 *         the end tag of the element.
+	 * @throws XMLStreamException
+	 *             if the content cannot be read.
+	 */
+	String read(XMLStreamReader reader) throws XMLStreamException {
+		// do not hold on to the buffer of an unusually long element.
+		if (xhtml.capacity() > 65536) {
+			xhtml = new StringBuilder(256);
+		}
+		xhtml.setLength(0);
+		int depth = 0;
+		// true while the last start tag still waits for its '>'.
+		boolean startOpen = false;
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				String localName = reader.getLocalName();
+				if (filter != null && filter.removesElement(localName)) {
+					skip(reader);
+					break;
+				}
+				if (startOpen) {
+					xhtml.append('>');
+					startOpen = false;
+				}
+				String elementName = null;
+				if (filter == null || filter.allowsElement(localName)) {
+					elementName = name(reader.getPrefix(), localName);
+					startTag(reader, elementName);
+					startOpen = true;
+				}
+				if (depth == open.length) {
+					String[] grown = new String[open.length * 2];
+					System.arraycopy(open, 0, grown, 0, open.length);
+					open = grown;
+				}
+				open[depth++] = elementName;
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth == 0) {
+					return xhtml.toString();
+				}
+				String closed = open[--depth];
+				if (closed != null) {
+					if (startOpen) {
+						xhtml.append(" />");
+						startOpen = false;
+					} else {
+						xhtml.append("</").append(closed).append('>');
+					}
+				}
+				break;
+
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (startOpen) {
+					xhtml.append('>');
+					startOpen = false;
+				}
+				escape(reader.getText(), false);
+				break;
+
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				// an entity the reader did not resolve is kept as it was
+				// written.
+				if (startOpen) {
+					xhtml.append('>');
+					startOpen = false;
+				}
+				xhtml.append('&').append(reader.getLocalName()).append(';');
+				break;
+
+			default:
+				// comments and processing instructions are left out.
+				break;
+			}
+		}
+		return xhtml.toString();
+	}
+
+	private void startTag(XMLStreamReader reader, String elementName) {
+		xhtml.append('<').append(elementName);
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			xhtml.append((prefix == null || prefix.equals("")) ? " xmlns"
+					: " xmlns:" + prefix);
+			value(reader.getNamespaceURI(i));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String value = reader.getAttributeValue(i);
+			if (filter == null
+					|| filter.allowsAttribute(reader.getAttributeLocalName(i),
+							value)) {
+				xhtml.append(' ').append(
+						name(reader.getAttributePrefix(i), reader
+								.getAttributeLocalName(i)));
+				value(value);
+			}
+		}
+	}
+
+	private void value(String value) {
+		xhtml.append("=\"");
+		escape(value, true);
+		xhtml.append('"');
+	}
+
+	private void escape(String text, boolean attribute) {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				xhtml.append("&amp;");
+				break;
+			case '<':
+				xhtml.append("&lt;");
+				break;
+			case '>':
+				xhtml.append("&gt;");
+				break;
+			case '"':
+				xhtml.append(attribute ? "&quot;" : "\"");
+				break;
+			default:
+				xhtml.append(c);
+			}
+		}
+	}
+
+	// moves the reader to the end of the current element.
+	private static void skip(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			int next = reader.next();
+			if (next == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (next == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static String name(String prefix, String localName) {
+		return (prefix == null || prefix.equals("")) ? localName : prefix
+				+ ":" + localName;
+	}
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright 2011 Bill Brown
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.colorfulsoftware.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * A small timing harness for the reading and writing paths of the RSSDoc. It
+ * is not run with the unit tests. Run it from the project directory after
+ * compiling the test classes:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes com.colorfulsoftware.rss.RSSDocBenchmark
+ * </pre>
+ *
+ * Each benchmark is warmed up before it is timed and the average time per
+ * operation is printed to standard out.
+ *
+ * @author Bill Brown
+ *
+ */
+public class RSSDocBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 200;
+
+	private static final int ITERATIONS = 500;
+
+	// the writers need a longer warm up before the timings settle and are
+	// timed several times to show how much they vary.
+	private static final int WRITER_WARMUP_ITERATIONS = 2000;
+
+	private static final int WRITER_ROUNDS = 5;
+
+	private final byte[] nyTimes;
+
+	private final byte[] synthetic;
+
+	RSSDocBenchmark() throws Exception {
+		nyTimes = readFile(new File("src/test/resources/nyTimes.rss.xml"));
+		synthetic = buildSyntheticFeed(500).getBytes("UTF-8");
+	}
+
+	/**
+	 * @param args
+	 *            not used.
+	 * @throws Exception
+	 *             if a benchmark fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		RSSDocBenchmark benchmark = new RSSDocBenchmark();
+		benchmark.benchValidationLevels();
+		benchmark.benchInvalidCorpus();
+		benchmark.benchWriters();
+		benchmark.benchCachingItems();
+		benchmark.benchParallelWriter();
+		benchmark.benchSnippets();
+	}
+
+	// compares the parse cost of each validation level.
+	void benchValidationLevels() throws Exception {
+		for (final ValidationLevel level : ValidationLevel.values()) {
+			final RSSDoc rssDoc = new RSSDoc();
+			rssDoc.setValidationLevel(level);
+			time("read nyTimes " + level, new Task() {
+				void run() throws Exception {
+					rssDoc.readRSSToBean(new ByteArrayInputStream(nyTimes));
+				}
+			});
+			time("read synthetic(500 items) " + level, new Task() {
+				void run() throws Exception {
+					rssDoc.readRSSToBean(new ByteArrayInputStream(synthetic));
+				}
+			});
+		}
+	}
+
+	// reads a corpus of 100 feeds where 30 fail on the first item with and
+	// without stack traces.
+	void benchInvalidCorpus() throws Exception {
+		final byte[][] corpus = new byte[100][];
+		for (int i = 0; i < corpus.length; i++) {
+			String feed = buildSyntheticFeed(20);
+			if (i % 10 < 3) {
+				int last = feed.indexOf("Fri, 24 Apr 2009");
+				feed = feed.substring(0, last) + "not a date"
+						+ feed.substring(feed.indexOf("</pubDate>", last));
+			}
+			corpus[i] = feed.getBytes("UTF-8");
+		}
+		for (final boolean stackless : new boolean[] { false, true }) {
+			final RSSDoc rssDoc = new RSSDoc();
+			rssDoc.setStacklessExceptions(stackless);
+			time("read corpus(100 feeds, 30% invalid) stackless=" + stackless,
+					new Task() {
+						void run() throws Exception {
+							for (byte[] feed : corpus) {
+								try {
+									rssDoc.readRSSToBean(new ByteArrayInputStream(
+											feed));
+								} catch (RSSpectException e) {
+									// expected for the invalid feeds.
+								}
+							}
+						}
+					});
+		}
+	}
+
+	// compares the StAX writer with the UTF-8 writer.
+	void benchWriters() throws Exception {
+		final RSSDoc rssDoc = new RSSDoc();
+		final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+		final RSS[] feeds = {
+				rssDoc.readRSSToBean(new ByteArrayInputStream(nyTimes)),
+				rssDoc.readRSSToBean(new ByteArrayInputStream(synthetic)) };
+		final String[] names = { "nyTimes", "synthetic(500 items)" };
+		for (int i = 0; i < feeds.length; i++) {
+			final RSS rss = feeds[i];
+			Task stax = new Task() {
+				void run() throws Exception {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					XMLStreamWriter writer = factory.createXMLStreamWriter(out,
+							"UTF-8");
+					rssDoc.writeRSSDoc(writer, rss, "UTF-8", "1.0");
+					writer.close();
+				}
+			};
+			Task utf8 = new Task() {
+				void run() throws Exception {
+					rssDoc.writeRSSDoc(new ByteArrayOutputStream(), rss,
+							"UTF-8", "1.0");
+				}
+			};
+			// both writers share RSSWriter so they are warmed up together.
+			for (int j = 0; j < WRITER_WARMUP_ITERATIONS; j++) {
+				stax.run();
+				utf8.run();
+			}
+			for (int round = 1; round <= WRITER_ROUNDS; round++) {
+				time("write " + names[i] + " StAX round " + round, stax, 0);
+				time("write " + names[i] + " UTF-8 round " + round, utf8, 0);
+			}
+		}
+	}
+
+	// writes the synthetic feed with and without the item cache.
+	void benchCachingItems() throws Exception {
+		for (final boolean caching : new boolean[] { false, true }) {
+			final RSSDoc rssDoc = new RSSDoc();
+			rssDoc.setCachingItems(caching);
+			final RSS rss = rssDoc.readRSSToBean(new ByteArrayInputStream(
+					synthetic));
+			time("write synthetic(500 items) caching=" + caching, new Task() {
+				void run() throws Exception {
+					rssDoc.writeRSSDoc(new ByteArrayOutputStream(), rss,
+							"UTF-8", "1.0");
+				}
+			});
+		}
+	}
+
+	// writes a 10000 item feed on one thread and on all processors.
+	void benchParallelWriter() throws Exception {
+		final RSSDoc rssDoc = new RSSDoc();
+		final RSS rss = rssDoc.readRSSToBean(new ByteArrayInputStream(
+				buildSyntheticFeed(10000).getBytes("UTF-8")));
+		int processors = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(processors);
+		try {
+			for (ExecutorService writerExecutor : new ExecutorService[] {
+					null, executor }) {
+				rssDoc.setWriterExecutor(writerExecutor);
+				time("write synthetic(10000 items) threads="
+						+ ((writerExecutor == null) ? 1 : processors),
+						new Task() {
+							void run() throws Exception {
+								rssDoc.writeRSSDoc(new ByteArrayOutputStream(),
+										rss, "UTF-8", "1.0");
+							}
+						});
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// works out the snippet of every item on each call and from the cache.
+	void benchSnippets() throws Exception {
+		RSSDoc rssDoc = new RSSDoc();
+		StringBuilder article = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			article.append("&lt;p class=&quot;body&quot;&gt;paragraph " + i
+					+ " of the article &amp;amp; its &amp;nbsp;text.&lt;/p&gt; ");
+		}
+		String feed = buildSyntheticFeed(500);
+		feed = feed.replaceAll("<description>the description of item",
+				"<description>" + article + "the description of item");
+		List<List<Item>> corpora = new ArrayList<List<Item>>();
+		corpora.add(rssDoc.readRSSToBean(new ByteArrayInputStream(nyTimes))
+				.getChannel().getItems());
+		corpora.add(rssDoc.readRSSToBean(
+				new ByteArrayInputStream(feed.getBytes("UTF-8"))).getChannel()
+				.getItems());
+		String[] names = { "nyTimes", "synthetic(500 items, 2KB html)" };
+		for (int i = 0; i < corpora.size(); i++) {
+			final List<Item> items = corpora.get(i);
+			time("snippets " + names[i] + " uncached", new Task() {
+				void run() throws Exception {
+					for (Item item : items) {
+						item.getSnippet(Item.SNIPPET_LENGTH);
+					}
+				}
+			});
+			time("snippets " + names[i] + " cached", new Task() {
+				void run() throws Exception {
+					for (Item item : items) {
+						item.getSnippet();
+					}
+				}
+			});
+		}
+	}
+
+	// a unit of work to time.
+	abstract static class Task {
+		abstract void run() throws Exception;
+	}
+
+	// warm the task up and then print the average time per operation.
+	static void time(String name, Task task) throws Exception {
+		time(name, task, WARMUP_ITERATIONS);
+	}
+
+	static void time(String name, Task task, int warmup) throws Exception {
+		for (int i = 0; i < warmup; i++) {
+			task.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			task.run();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println(name + ": " + (elapsed / ITERATIONS / 1000)
+				+ " us/op");
+	}
+
+	// a feed that exercises most of the checked elements.
+	static String buildSyntheticFeed(int items) {
+		StringBuilder sb = new StringBuilder(
+				"<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+						+ "<rss version=\"2.0\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">"
+						+ "<channel><title>synthetic feed</title>"
+						+ "<link>http://www.colorfulsoftware.com</link>"
+						+ "<description>a generated feed</description>"
+						+ "<cloud domain=\"rpc.sys.com\" port=\"80\" path=\"/RPC2\" registerProcedure=\"pingMe\" protocol=\"soap\"/>"
+						+ "<image><url>http://www.colorfulsoftware.com/logo.gif</url>"
+						+ "<title>synthetic feed</title><link>http://www.colorfulsoftware.com</link>"
+						+ "<width>144</width><height>100</height></image>"
+						+ "<skipHours><hour>0</hour><hour>12</hour><hour>23</hour></skipHours>"
+						+ "<skipDays><day>Monday</day><day>Sunday</day></skipDays>");
+		for (int i = 0; i < items; i++) {
+			sb.append("<item><title>item " + i + "</title>");
+			sb.append("<link>http://www.colorfulsoftware.com/items/" + i
+					+ "</link>");
+			sb.append("<description>the description of item " + i
+					+ " &amp;lt;b&amp;gt;with markup&amp;lt;/b&amp;gt;</description>");
+			sb.append("<enclosure url=\"http://www.colorfulsoftware.com/" + i
+					+ ".mp3\" length=\"12216320\" type=\"audio/mpeg\"/>");
+			sb.append("<guid isPermaLink=\"false\">item-" + i + "</guid>");
+			sb.append("<pubDate>Fri, 24 Apr 2009 17:28:46 GMT</pubDate>");
+			sb.append("<dc:creator>Bill Brown</dc:creator>");
+			sb.append("</item>");
+		}
+		sb.append("</channel></rss>");
+		return sb.toString();
+	}
+
+	static byte[] readFile(File file) throws Exception {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int read;
+			while ((read = in.read(buf)) != -1) {
+				out.write(buf, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -18,21 +18,42 @@ package com.colorfulsoftware.rss;
 import static org.junit.Assert.*;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.StringWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.namespace.QName;
 import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.junit.After;
@@ -2327,4 +2348,1708 @@ public class RSSDocTest implements Serializable {
 			fail("should not get here.");
 		}
 	}
+
+	/**
+	 * tests the lenient and trusted validation levels.
+	 */
+	@Test
+	public void testValidationLevel() {
+		try {
+			assertEquals(rssDoc.getValidationLevel(), ValidationLevel.STRICT);
+			RSS strictRSS = rssDoc.readRSSToBean(expectedRSS1);
+
+			rssDoc.setValidationLevel(ValidationLevel.LENIENT);
+			assertEquals(rssDoc.buildWidth("200").getWidth(), "200");
+			assertEquals(rssDoc.buildHeight("abc").getHeight(), "abc");
+			assertEquals(rssDoc.buildHour("24").getHour(), "24");
+			assertEquals(rssDoc.buildDay("monday").getDay(), "monday");
+			assertEquals(rssDoc.buildLink("abcScheme://testMe").getLink(),
+					"abcScheme://testMe");
+			assertEquals(rssDoc.buildURL("abcScheme://testMe").getUrl(),
+					"abcScheme://testMe");
+			try {
+				rssDoc.buildWidth("");
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getMessage(), "width SHOULD NOT be blank.");
+			}
+			List<Attribute> attrs = new LinkedList<Attribute>();
+			attrs.add(rssDoc.buildAttribute("url", "http://www.earthbeats.net"));
+			try {
+				rssDoc.buildEnclosure(attrs);
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getMessage(),
+						"enclosure elements MUST have a length attribute.");
+			}
+			assertEquals(rssDoc.readRSSToBean(expectedRSS1), strictRSS);
+
+			rssDoc.setValidationLevel(ValidationLevel.TRUSTED);
+			Enclosure enclosure = rssDoc.buildEnclosure(attrs);
+			assertNotNull(enclosure.getUrl());
+			assertNull(enclosure.getLength());
+			assertNull(enclosure.getType());
+			Cloud cloud = rssDoc.buildCloud(attrs);
+			assertNull(cloud.getDomain());
+			assertNull(cloud.getProtocol());
+			assertNotNull(rssDoc.buildExtension("noNamespace", null, "content"));
+			try {
+				rssDoc.buildTitle("");
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getMessage(), "title SHOULD NOT be blank.");
+			}
+			RSS trustedRSS = rssDoc.readRSSToBean(expectedRSS1);
+			assertEquals(trustedRSS, strictRSS);
+			assertEquals(trustedRSS.toString(), strictRSS.toString());
+
+			rssDoc.setValidationLevel(null);
+			assertEquals(rssDoc.getValidationLevel(), ValidationLevel.STRICT);
+			try {
+				rssDoc.buildDay("monday");
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(
+						r.getMessage(),
+						"day elements must have a value of Monday, Tuesday, Wednesday, Thursday, Friday, Saturday or Sunday.");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests collecting all the violations of a document in one pass.
+	 */
+	@Test
+	public void testValidate() {
+		try {
+			ValidationReport report = rssDoc.validate(new ByteArrayInputStream(
+					expectedRSS1.getBytes("UTF-8")));
+			assertTrue(report.isValid());
+			assertEquals(report.getViolations().size(), 0);
+
+			String invalidRSS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<rss version=\"2.0\">\n"
+					+ "<channel>\n"
+					+ "<title>invalid feed</title>\n"
+					+ "<link>http://www.colorfulsoftware.com</link>\n"
+					+ "<description>a feed with several problems</description>\n"
+					+ "<image><url>http://www.colorfulsoftware.com/logo.gif</url>"
+					+ "<title>logo</title><link>http://www.colorfulsoftware.com</link>"
+					+ "<width>500</width></image>\n"
+					+ "<item><title>one</title><pubDate>not a date</pubDate></item>\n"
+					+ "<item><title>two</title><link>abcScheme://testMe</link></item>\n"
+					+ "<item><title>three</title>"
+					+ "<enclosure url=\"http://www.colorfulsoftware.com/a.mp3\" type=\"audio/mpeg\"/></item>\n"
+					+ "<item><pubDate>not a date</pubDate></item>\n"
+					+ "</channel>\n" + "</rss>";
+			report = rssDoc.validate(new ByteArrayInputStream(invalidRSS
+					.getBytes("UTF-8")));
+			assertFalse(report.isValid());
+			List<Violation> violations = report.getViolations();
+			assertEquals(violations.size(), 6);
+			assertEquals(violations.get(0).getPath(),
+					"/rss/channel/image/width");
+			assertEquals(violations.get(0).getLineNumber(), 7);
+			assertEquals(violations.get(0).getMessage(),
+					"width cannot be greater than 144px.");
+			assertEquals(violations.get(0).getErrorCode(),
+					ErrorCode.INVALID_VALUE);
+			assertEquals(violations.get(1).getPath(),
+					"/rss/channel/item/pubDate");
+			assertEquals(violations.get(1).getLineNumber(), 8);
+			assertEquals(violations.get(1).getMessage(),
+					"Error trying to parse a date in RFC 822 format for: 'not a date'");
+			assertEquals(violations.get(2).getPath(), "/rss/channel/item/link");
+			assertEquals(violations.get(2).getLineNumber(), 9);
+			assertEquals(violations.get(3).getPath(),
+					"/rss/channel/item/enclosure");
+			assertEquals(violations.get(3).getLineNumber(), 10);
+			assertEquals(violations.get(3).getMessage(),
+					"enclosure elements MUST have a length attribute.");
+			assertEquals(violations.get(3).getErrorCode(),
+					ErrorCode.MISSING_ATTRIBUTE);
+			// the item is reported after its only child was skipped.
+			assertEquals(violations.get(4).getPath(),
+					"/rss/channel/item/pubDate");
+			assertEquals(violations.get(4).getLineNumber(), 11);
+			assertEquals(violations.get(5).getPath(), "/rss/channel/item");
+			assertEquals(violations.get(5).getLineNumber(), 11);
+			assertEquals(violations.get(5).getMessage(),
+					"item elements MUST contain either a title or description element.");
+			for (Violation violation : violations) {
+				assertFalse(violation.isFatal());
+				assertTrue(violation.getColumnNumber() > 0);
+			}
+			try {
+				rssDoc.readRSSToBean(invalidRSS);
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getMessage(), "width cannot be greater than 144px.");
+			}
+
+			report = rssDoc.validate(new ByteArrayInputStream(
+					"<rss version=\"2.0\"><channel><title>broken</title></rss>"
+							.getBytes("UTF-8")));
+			assertFalse(report.isValid());
+			assertEquals(report.getViolations().size(), 1);
+			assertTrue(report.getViolations().get(0).isFatal());
+			assertEquals(report.getViolations().get(0).getErrorCode(),
+					ErrorCode.MALFORMED_XML);
+			assertEquals(report.getViolations().get(0).getLineNumber(), 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests the error codes, context and stackless exceptions.
+	 */
+	@Test
+	public void testStacklessExceptions() {
+		String invalidRSS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<rss version=\"2.0\">\n" + "<channel>\n"
+				+ "<title>invalid feed</title>\n"
+				+ "<link>http://www.colorfulsoftware.com</link>\n"
+				+ "<description>a feed with a bad date</description>\n"
+				+ "<item><title>one</title><pubDate>not a date</pubDate></item>\n"
+				+ "</channel>\n" + "</rss>";
+		try {
+			assertFalse(rssDoc.isStacklessExceptions());
+			try {
+				rssDoc.readRSSToBean(invalidRSS);
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getErrorCode(), ErrorCode.INVALID_DATE);
+				assertTrue(r.getContext().startsWith("pubDate at line 7"));
+				assertTrue(r.getStackTrace().length > 0);
+			}
+
+			rssDoc.setStacklessExceptions(true);
+			try {
+				rssDoc.readRSSToBean(invalidRSS);
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getErrorCode(), ErrorCode.INVALID_DATE);
+				assertEquals(r.getMessage(),
+						"Error trying to parse a date in RFC 822 format for: 'not a date'");
+				assertTrue(r.getContext().startsWith("pubDate at line 7"));
+				assertEquals(r.getStackTrace().length, 0);
+			}
+			assertNotNull(rssDoc.readRSSToBean(expectedRSS1));
+
+			// only the readers are affected.
+			try {
+				rssDoc.buildTitle("");
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getErrorCode(), ErrorCode.BLANK_VALUE);
+				assertNull(r.getContext());
+				assertTrue(r.getStackTrace().length > 0);
+			}
+			assertEquals(new RSSpectException("a message").getErrorCode(),
+					ErrorCode.UNSPECIFIED);
+			rssDoc.setStacklessExceptions(false);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests reading the valid parts of a feed with invalid items.
+	 */
+	@Test
+	public void testReadRSSToBeanRecovering() {
+		String invalidRSS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<rss version=\"2.0\">\n"
+				+ "<channel>\n"
+				+ "<title>invalid feed</title>\n"
+				+ "<link>http://www.colorfulsoftware.com</link>\n"
+				+ "<description>a feed with several bad items</description>\n"
+				+ "<item><title>one</title><pubDate>not a date</pubDate></item>\n"
+				+ "<item><title>two</title><link>abcScheme://testMe</link></item>\n"
+				+ "<item><description>three</description>"
+				+ "<enclosure url=\"http://www.colorfulsoftware.com/a.mp3\" type=\"audio/mpeg\"/></item>\n"
+				+ "<item><pubDate>Fri, 24 Apr 2009 17:28:46 GMT</pubDate></item>\n"
+				+ "<item><title>five</title><link>http://www.colorfulsoftware.com</link></item>\n"
+				+ "</channel>\n" + "</rss>";
+		try {
+			ValidationReport report = new ValidationReport();
+			RSS rss = rssDoc.readRSSToBean(new ByteArrayInputStream(invalidRSS
+					.getBytes("UTF-8")), report);
+			List<Item> items = rss.getChannel().getItems();
+			assertEquals(items.size(), 4);
+			assertEquals(items.get(0).getTitle().getTitle(), "one");
+			assertNull(items.get(0).getPubDate());
+			assertEquals(items.get(1).getTitle().getTitle(), "two");
+			assertNull(items.get(1).getLink());
+			assertEquals(items.get(2).getDescription().getDescription(),
+					"three");
+			assertNull(items.get(2).getEnclosure());
+			assertEquals(items.get(3).getLink().getLink(),
+					"http://www.colorfulsoftware.com");
+
+			assertEquals(report.getViolations().size(), 4);
+			List<Violation> skippedItems = report
+					.getViolations("/rss/channel/item");
+			assertEquals(skippedItems.size(), 1);
+			assertEquals(skippedItems.get(0).getLineNumber(), 10);
+			assertEquals(skippedItems.get(0).getErrorCode(),
+					ErrorCode.MISSING_ELEMENT);
+			assertEquals(report.getViolations("/rss/channel/item/link").size(),
+					1);
+
+			// the channel cannot be recovered.
+			report = new ValidationReport();
+			try {
+				rssDoc.readRSSToBean(new ByteArrayInputStream(invalidRSS
+						.replace("<title>invalid feed</title>", "")
+						.getBytes("UTF-8")), report);
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				// the channel's own violation is thrown rather than the
+				// recovered ones before it or what followed from it.
+				assertEquals(r.getErrorCode(), ErrorCode.MISSING_ELEMENT);
+				assertEquals(r.getMessage(),
+						"channel elements MUST contain a title element.");
+				assertTrue(r.getContext().startsWith("/rss/channel at line 3,"));
+				assertEquals(report.getViolations().get(0).getErrorCode(),
+						ErrorCode.INVALID_DATE);
+				assertEquals(report.getViolations().get(
+						report.getViolations().size() - 1).getMessage(),
+						"rss elements MUST contain a channel element.");
+			}
+
+			// without a report the first problem is thrown.
+			try {
+				rssDoc.readRSSToBean(new ByteArrayInputStream(invalidRSS
+						.getBytes("UTF-8")), null);
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getErrorCode(), ErrorCode.INVALID_DATE);
+			}
+
+			// an element in a text only element is skipped, not fatal.
+			report = rssDoc.validate(new ByteArrayInputStream(invalidRSS
+					.replace("<title>one</title>",
+							"<title>o<b>n</b>e</title><description>1</description>")
+					.getBytes("UTF-8")));
+			assertEquals(report.getViolations().size(), 5);
+			Violation nested = report.getViolations().get(0);
+			assertEquals(nested.getErrorCode(), ErrorCode.INVALID_VALUE);
+			assertFalse(nested.isFatal());
+			assertEquals(nested.getPath(), "/rss/channel/item/title/b");
+			assertEquals(nested.getMessage(),
+					"title elements MUST contain only text. Yours contained: b");
+			assertEquals(report.getViolations().get(1).getErrorCode(),
+					ErrorCode.INVALID_DATE);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests the reader resource limits.
+	 */
+	@Test
+	public void testReaderLimits() {
+		String feed = "<rss version=\"2.0\" xmlns:ext=\"http://www.fake.extension.org/fakeness\">"
+				+ "<channel><title>limits</title>"
+				+ "<link>http://www.colorfulsoftware.com</link>"
+				+ "<description>a feed to test the limits</description>"
+				+ "<item><title>one</title><ext:a><ext:b><ext:c>deep</ext:c></ext:b></ext:a></item>"
+				+ "<item><title>two</title><ext:a>shallow</ext:a></item>"
+				+ "<item><title>three</title></item>" + "</channel></rss>";
+		try {
+			assertNull(rssDoc.getReaderLimits());
+			RSS unlimited = rssDoc.readRSSToBean(feed);
+
+			rssDoc.setReaderLimits(new ReaderLimits(10000, 10, 10, 100, 10));
+			assertEquals(rssDoc.readRSSToBean(feed), unlimited);
+
+			String[][] limited = {
+					{ "100", "0", "0", "0", "0",
+							"the document is larger than the limit of 100 bytes." },
+					{ "0", "2", "0", "0", "0",
+							"the document has more than the limit of 2 items." },
+					{ "0", "0", "5", "0", "0",
+							"the document is nested deeper than the limit of 5 elements." },
+					{ "0", "0", "0", "20", "0",
+							"a text node is longer than the limit of 20 characters." },
+					{ "0", "0", "0", "0", "1",
+							"the document has more than the limit of 1 extensions." } };
+			for (String[] limit : limited) {
+				rssDoc.setReaderLimits(new ReaderLimits(Long
+						.parseLong(limit[0]), Integer.parseInt(limit[1]),
+						Integer.parseInt(limit[2]), Integer.parseInt(limit[3]),
+						Integer.parseInt(limit[4])));
+				try {
+					rssDoc.readRSSToBean(feed);
+					fail("we should have thrown an exception above.");
+				} catch (RSSpectException r) {
+					assertEquals(r.getErrorCode(), ErrorCode.LIMIT_EXCEEDED);
+					assertEquals(r.getMessage(), limit[5]);
+					assertNotNull(r.getContext());
+				}
+				// limits are not collected as violations.
+				try {
+					rssDoc.validate(new ByteArrayInputStream(feed
+							.getBytes("UTF-8")));
+					fail("we should have thrown an exception above.");
+				} catch (RSSpectException r) {
+					assertEquals(r.getMessage(), limit[5]);
+				}
+			}
+
+			// a long text stops the reader before the rest of it is read.
+			StringBuilder longTitle = new StringBuilder();
+			while (longTitle.length() < 4 * 1024 * 1024) {
+				longTitle.append("a very long title ");
+			}
+			ByteArrayInputStream longFeed = new ByteArrayInputStream(feed
+					.replace("<title>one</title>",
+							"<title>" + longTitle + "</title>").getBytes(
+							"UTF-8"));
+			rssDoc.setReaderLimits(new ReaderLimits(0, 0, 0, 1000, 0));
+			try {
+				rssDoc.readRSSToBean(longFeed, new ValidationReport());
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getErrorCode(), ErrorCode.LIMIT_EXCEEDED);
+				assertTrue(longFeed.available() > 3 * 1024 * 1024);
+			}
+
+			rssDoc.setReaderLimits(null);
+			assertEquals(rssDoc.readRSSToBean(feed), unlimited);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests writing the items of a feed one at a time.
+	 */
+	@Test
+	public void testStreamWriter() {
+		try {
+			RSS rss = rssDoc.readRSSToBean(expectedRSS1);
+			StringWriter expected = new StringWriter();
+			rssDoc.writeRSSDoc(XMLOutputFactory.newInstance()
+					.createXMLStreamWriter(expected), rss, "UTF-8", "1.0");
+
+			Channel channel = rss.getChannel();
+			List<Item> items = channel.getItems();
+			RSS header = rssDoc.buildRSS(rssDoc.buildChannel(channel
+					.getTitle(), channel.getLink(), channel.getDescription(),
+					channel.getLanguage(), channel.getCopyright(), channel
+							.getManagingEditor(), channel.getWebMaster(),
+					channel.getPubDate(), channel.getLastBuildDate(), channel
+							.getCategories(), channel.getGenerator(), channel
+							.getDocs(), channel.getCloud(), channel.getTtl(),
+					channel.getImage(), channel.getRating(), channel
+							.getTextInput(), channel.getSkipHours(), channel
+							.getSkipDays(), channel.getExtensions(), null), rss
+					.getAttributes(), rss.getExtensions());
+
+			StringWriter streamed = new StringWriter();
+			RSSStreamWriter streamWriter = rssDoc.createStreamWriter(
+					XMLOutputFactory.newInstance().createXMLStreamWriter(
+							streamed), header, "UTF-8", "1.0");
+			streamWriter.writeItem(items.get(0));
+			streamWriter.writeItems(items.subList(1, items.size()).iterator());
+			streamWriter.close();
+			streamWriter.close();
+			assertEquals(streamed.toString(), expected.toString());
+			assertEquals(rssDoc.readRSSToBean(streamed.toString()), rssDoc
+					.readRSSToBean(expected.toString()));
+
+			try {
+				streamWriter.writeItem(items.get(0));
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException r) {
+				assertEquals(r.getMessage(), "the stream writer is closed.");
+			}
+
+			// the items of the header are written first.
+			streamed = new StringWriter();
+			streamWriter = rssDoc.createStreamWriter(XMLOutputFactory
+					.newInstance().createXMLStreamWriter(streamed), rss,
+					"UTF-8", "1.0");
+			streamWriter.writeItem(items.get(0));
+			streamWriter.close();
+			assertEquals(rssDoc.readRSSToBean(streamed.toString())
+					.getChannel().getItems().size(), items.size() + 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests that the UTF-8 writer produces the same bytes as the JDK's
+	 * XMLStreamWriter.
+	 */
+	@Test
+	public void testUTF8StreamWriter() {
+		try {
+			String tricky = "a<b>c&d\"e'f\rg\nh\ti\u0001j\u00e9k\u20acl\ud83d\ude00m]]>n&amp;";
+			List<Attribute> attrs = new LinkedList<Attribute>();
+			attrs.add(rssDoc.buildAttribute("version", "2.0"));
+			attrs.add(rssDoc.buildAttribute("xmlns:ext",
+					"http://www.fake.extension.org/fakeness"));
+			List<Attribute> extAttrs = new LinkedList<Attribute>();
+			extAttrs.add(rssDoc.buildAttribute("ext:attr", tricky));
+			List<Extension> extensions = new LinkedList<Extension>();
+			extensions.add(rssDoc.buildExtension("ext:full", extAttrs, tricky));
+			extensions.add(rssDoc.buildExtension("ext:empty", extAttrs, ""));
+			List<Item> items = new LinkedList<Item>();
+			items.add(rssDoc.buildItem(rssDoc.buildTitle(tricky), null, rssDoc
+					.buildDescription(tricky), null, null, null, null, rssDoc
+					.buildGUID(rssDoc.buildAttribute("isPermaLink", "false"),
+							tricky), null, null, extensions));
+			items.add(rssDoc.buildItem(null, null, rssDoc
+					.buildDescription(" "), null, null, null, null, null,
+					null, null, null));
+			RSS tricked = rssDoc.buildRSS(rssDoc.buildChannel(rssDoc
+					.buildTitle(tricky), rssDoc
+					.buildLink("http://www.colorfulsoftware.com"), rssDoc
+					.buildDescription(tricky), null, null, null, null, null,
+					null, null, null, null, null, null, null, null, null, null,
+					null, extensions, items), attrs, null);
+
+			for (RSS rss : new RSS[] { rssDoc.readRSSToBean(expectedRSS1),
+					tricked }) {
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				rssDoc.writeRSSDoc(XMLOutputFactory.newInstance()
+						.createXMLStreamWriter(expected, "UTF-8"), rss,
+						"UTF-8", "1.0");
+				ByteArrayOutputStream actual = new ByteArrayOutputStream();
+				rssDoc.writeRSSDoc(actual, rss, "UTF-8", "1.0");
+				assertEquals(new String(actual.toByteArray(), "UTF-8"),
+						new String(expected.toByteArray(), "UTF-8"));
+				assertTrue(Arrays.equals(actual.toByteArray(), expected
+						.toByteArray()));
+			}
+
+			// a tiny buffer and an unpaired surrogate.
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			XMLStreamWriter[] writers = {
+					XMLOutputFactory.newInstance().createXMLStreamWriter(
+							expected, "UTF-8"),
+					new UTF8StreamWriter(actual, 16) };
+			for (XMLStreamWriter writer : writers) {
+				writer.writeStartDocument("utf-8", "1.0");
+				writer.writeStartElement("rss");
+				writer.writeAttribute("a", tricky);
+				writer.writeEmptyElement("cloud");
+				writer.writeStartElement("p", "ext", "");
+				writer.writeCharacters(tricky + "\ud800");
+				writer.writeEndElement();
+				writer.writeStartElement("title");
+				writer.writeCharacters("");
+				writer.writeEndElement();
+				// these bodies are written without escaping.
+				writer.writeProcessingInstruction("xml-stylesheet",
+						"href=\"a.xsl?a=1&b=2\" type=\"text/xsl\"");
+				writer.writeCData("x & < y \u00e9");
+				writer.writeComment(" c & d <e> ");
+				writer.writeDTD("<!DOCTYPE rss [<!ENTITY a \"&#38;\">]>");
+				writer.writeEndDocument();
+				writer.flush();
+				writer.close();
+			}
+			assertTrue(Arrays.equals(actual.toByteArray(), expected
+					.toByteArray()));
+			assertTrue(new String(actual.toByteArray(), "UTF-8").indexOf(
+					"<?xml-stylesheet href=\"a.xsl?a=1&b=2\"") != -1);
+
+			// the JDK's writer would end the section early here.
+			actual = new ByteArrayOutputStream();
+			UTF8StreamWriter writer = new UTF8StreamWriter(actual);
+			writer.writeStartElement("a");
+			writer.writeCData("x]]>y");
+			writer.writeEndElement();
+			writer.flush();
+			assertEquals(new String(actual.toByteArray(), "UTF-8"),
+					"<a><![CDATA[x]]]]><![CDATA[>y]]></a>");
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests that cached item bytes are reused and produce the same output.
+	 */
+	@Test
+	public void testCachingItems() {
+		try {
+			// the same doc so the processing instructions are written too.
+			RSSDoc cachingDoc = new RSSDoc();
+			assertFalse(cachingDoc.isCachingItems());
+			RSS rss = cachingDoc.readRSSToBean(new File(
+					"src/test/resources/nyTimes.rss.xml"));
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			cachingDoc.writeRSSDoc(expected, rss, "UTF-8", "1.0");
+			cachingDoc.setCachingItems(true);
+			assertTrue(cachingDoc.isCachingItems());
+
+			List<Item> items = rss.getChannel().getItems();
+			assertNull(items.get(0).getFragment(cachingDoc.getFragmentKey()));
+			for (int i = 0; i < 2; i++) {
+				ByteArrayOutputStream actual = new ByteArrayOutputStream();
+				cachingDoc.writeRSSDoc(actual, rss, "UTF-8", "1.0");
+				assertTrue(Arrays.equals(actual.toByteArray(), expected
+						.toByteArray()));
+			}
+			// the copies of the items share the bytes.
+			for (Item item : items) {
+				assertNotNull(item.getFragment(cachingDoc.getFragmentKey()));
+			}
+
+			// a new item in front of the written ones.
+			Channel channel = rss.getChannel();
+			items.add(0, rssDoc.buildItem(rssDoc.buildTitle("a new item"),
+					null, null, null, null, null, null, null, null, null, null));
+			RSS updated = rssDoc.buildRSS(rssDoc.buildChannel(channel
+					.getTitle(), channel.getLink(), channel.getDescription(),
+					channel.getLanguage(), channel.getCopyright(), channel
+							.getManagingEditor(), channel.getWebMaster(),
+					channel.getPubDate(), channel.getLastBuildDate(), channel
+							.getCategories(), channel.getGenerator(), channel
+							.getDocs(), channel.getCloud(), channel.getTtl(),
+					channel.getImage(), channel.getRating(), channel
+							.getTextInput(), channel.getSkipHours(), channel
+							.getSkipDays(), channel.getExtensions(), items), rss
+					.getAttributes(), rss.getExtensions());
+			cachingDoc.setCachingItems(false);
+			expected = new ByteArrayOutputStream();
+			cachingDoc.writeRSSDoc(expected, updated, "UTF-8", "1.0");
+			cachingDoc.setCachingItems(true);
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			cachingDoc.writeRSSDoc(actual, updated, "UTF-8", "1.0");
+			assertTrue(Arrays.equals(actual.toByteArray(), expected
+					.toByteArray()));
+
+			// other encodings are written without the cache.
+			cachingDoc.setCachingItems(false);
+			expected = new ByteArrayOutputStream();
+			cachingDoc.writeRSSDoc(expected, updated, "ISO-8859-1", "1.0");
+			cachingDoc.setCachingItems(true);
+			actual = new ByteArrayOutputStream();
+			cachingDoc.writeRSSDoc(actual, updated, "ISO-8859-1", "1.0");
+			assertTrue(Arrays.equals(actual.toByteArray(), expected
+					.toByteArray()));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests the compressed output and the rendered document.
+	 */
+	@Test
+	public void testCompression() {
+		try {
+			RSS rss = rssDoc.readRSSToBean(new File(
+					"src/test/resources/nyTimes.rss.xml"));
+			ByteArrayOutputStream plain = new ByteArrayOutputStream();
+			rssDoc.writeRSSDoc(plain, rss, "UTF-8", "1.0");
+			byte[] expected = plain.toByteArray();
+
+			// written twice to reuse the deflaters.
+			for (int i = 0; i < 2; i++) {
+				ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+				rssDoc.writeRSSDoc(gzip, rss, "UTF-8", "1.0",
+						Compression.GZIP);
+				assertTrue(Arrays.equals(inflate(new GZIPInputStream(
+						new ByteArrayInputStream(gzip.toByteArray()))),
+						expected));
+				ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+				rssDoc.writeRSSDoc(deflate, rss, "UTF-8", "1.0",
+						Compression.DEFLATE);
+				assertTrue(Arrays.equals(inflate(new InflaterInputStream(
+						new ByteArrayInputStream(deflate.toByteArray()))),
+						expected));
+			}
+			ByteArrayOutputStream none = new ByteArrayOutputStream();
+			rssDoc.writeRSSDoc(none, rss, "UTF-8", "1.0", null);
+			assertTrue(Arrays.equals(none.toByteArray(), expected));
+
+			RenderedRSS rendered = rssDoc.renderRSSDoc(rss, "UTF-8", "1.0");
+			assertEquals(rendered.getEncoding(), "UTF-8");
+			assertTrue(Arrays.equals(rendered.getBytes(Compression.NONE),
+					expected));
+			assertEquals(rendered.getLength(null), expected.length);
+			assertTrue(Arrays.equals(inflate(new GZIPInputStream(
+					new ByteArrayInputStream(rendered
+							.getBytes(Compression.GZIP)))), expected));
+			assertTrue(rendered.getLength(Compression.GZIP) < expected.length);
+			ByteArrayOutputStream served = new ByteArrayOutputStream();
+			rendered.writeTo(served, Compression.DEFLATE);
+			assertEquals(served.size(), rendered
+					.getLength(Compression.DEFLATE));
+			assertTrue(Arrays.equals(inflate(new InflaterInputStream(
+					new ByteArrayInputStream(served.toByteArray()))), expected));
+			assertEquals(Compression.GZIP.getContentEncoding(), "gzip");
+			assertNull(Compression.NONE.getContentEncoding());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	private byte[] inflate(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int read;
+		while ((read = in.read(buf)) != -1) {
+			out.write(buf, 0, read);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * tests the built in indenting.
+	 */
+	@Test
+	public void testIndenting() {
+		try {
+			RSSDoc indentingDoc = new RSSDoc();
+			RSS rss = indentingDoc
+					.readRSSToBean("<rss version=\"2.0\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">"
+							+ "<channel><title>t</title><link>http://a.com</link><description>d</description>"
+							+ "<skipDays><day>Monday</day></skipDays>"
+							+ "<item><title>i</title><dc:creator>me</dc:creator></item></channel></rss>");
+			String body = "<rss xmlns:dc=\"http://purl.org/dc/elements/1.1/\" version=\"2.0\">\r\n"
+					+ "\t<channel>\r\n"
+					+ "\t\t<title>t</title>\r\n"
+					+ "\t\t<link>http://a.com</link>\r\n"
+					+ "\t\t<description>d</description>\r\n"
+					+ "\t\t<generator>"
+					+ indentingDoc.getLibVersion().getGenerator()
+					+ "</generator>\r\n"
+					+ "\t\t<skipDays>\r\n"
+					+ "\t\t\t<day>Monday</day>\r\n"
+					+ "\t\t</skipDays>\r\n"
+					+ "\t\t<item>\r\n"
+					+ "\t\t\t<title>i</title>\r\n"
+					+ "\t\t\t<dc:creator>me</dc:creator>\r\n"
+					+ "\t\t</item>\r\n" + "\t</channel>\r\n" + "</rss>";
+			String rssStr = indentingDoc.readRSSToString(rss, "\t", "\r\n");
+			assertTrue(rssStr.startsWith("<?xml"));
+			assertTrue(rssStr.endsWith("?>\r\n" + body));
+
+			// the writers indent once the indent is set.
+			assertNull(indentingDoc.getIndent());
+			assertEquals(indentingDoc.getNewLine(), "\n");
+			indentingDoc.setIndent("\t");
+			indentingDoc.setNewLine("\r\n");
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			indentingDoc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+			assertEquals(out.toString("UTF-8"),
+					"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n" + body);
+
+			// and the output reads back to the same feed.
+			assertEquals(indentingDoc.readRSSToBean(out.toString("UTF-8"))
+					.getChannel().getItems().size(), 1);
+
+			indentingDoc.setIndent(null);
+			indentingDoc.setNewLine(null);
+			assertEquals(indentingDoc.getNewLine(), "\n");
+			out = new ByteArrayOutputStream();
+			indentingDoc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+			assertTrue(out.toString("UTF-8").indexOf("\n") == -1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests writing to channels and replacing files.
+	 */
+	@Test
+	public void testWriteRSSDocChannel() {
+		try {
+			RSS rss = rssDoc.readRSSToBean(expectedRSS1);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			rssDoc.writeRSSDoc(expected, rss, "UTF-8", "1.0");
+
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			rssDoc.writeRSSDoc(Channels.newChannel(actual), rss, "UTF-8",
+					"1.0");
+			assertTrue(Arrays.equals(actual.toByteArray(), expected
+					.toByteArray()));
+
+			File dir = new File("target/channel");
+			dir.mkdirs();
+			File file = new File(dir, "feed.xml");
+			file.delete();
+			for (int i = 0; i < 2; i++) {
+				rssDoc.writeRSSDoc(file, rss, "UTF-8", "1.0");
+				FileInputStream in = new FileInputStream(file);
+				FileChannel channel = in.getChannel();
+				ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+				while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+				}
+				in.close();
+				assertTrue(Arrays.equals(bytes.array(), expected
+						.toByteArray()));
+			}
+			// only the published file is left behind.
+			assertEquals(dir.list().length, 1);
+			assertTrue(file.delete());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * tests writing the most recent items of a channel.
+	 */
+	@Test
+	public void testItemWindow() {
+		try {
+			String[] dates = { "Fri, 24 Apr 2009 10:00:00 GMT",
+					"Sun, 26 Apr 2009 10:00:00 GMT", null,
+					"Sat, 25 Apr 2009 10:00:00 GMT",
+					"Sun, 26 Apr 2009 10:00:00 GMT",
+					"Mon, 27 Apr 2009 10:00:00 GMT" };
+			StringBuilder feed = new StringBuilder(
+					"<rss version=\"2.0\"><channel><title>t</title>"
+							+ "<link>http://a.com</link><description>d</description>");
+			for (int i = 0; i < dates.length; i++) {
+				feed.append("<item><title>" + i + "</title>");
+				if (dates[i] != null) {
+					feed.append("<pubDate>" + dates[i] + "</pubDate>");
+				}
+				feed.append("</item>");
+			}
+			feed.append("</channel></rss>");
+			RSSDoc windowDoc = new RSSDoc();
+			RSS rss = windowDoc.readRSSToBean(feed.toString());
+
+			assertEquals(windowDoc.getMaxItems(), 0);
+			assertNull(windowDoc.getItemCutoff());
+			assertEquals(writtenTitles(windowDoc, rss), "012345");
+
+			// the most recent items in document order. of the two items
+			// published at the same time the first one wins.
+			windowDoc.setMaxItems(3);
+			assertEquals(writtenTitles(windowDoc, rss), "145");
+			windowDoc.setMaxItems(2);
+			assertEquals(writtenTitles(windowDoc, rss), "15");
+			windowDoc.setMaxItems(10);
+			assertEquals(writtenTitles(windowDoc, rss), "012345");
+
+			windowDoc.setItemCutoff(new SimpleDateFormat(
+					"EEE, dd MMM yyyy HH:mm:ss z", Locale.US)
+					.parse("Sat, 25 Apr 2009 10:00:00 GMT"));
+			assertEquals(writtenTitles(windowDoc, rss), "145");
+			windowDoc.setMaxItems(2);
+			assertEquals(writtenTitles(windowDoc, rss), "15");
+			windowDoc.setMaxItems(0);
+			assertEquals(writtenTitles(windowDoc, rss), "145");
+			windowDoc.setItemCutoff(null);
+			assertEquals(writtenTitles(windowDoc, rss), "012345");
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	private String writtenTitles(RSSDoc doc, RSS rss) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+		StringBuilder titles = new StringBuilder();
+		for (Item item : doc.readRSSToBean(out.toString("UTF-8"))
+				.getChannel().getItems()) {
+			titles.append(item.getTitle().getTitle());
+		}
+		return titles.toString();
+	}
+
+	/**
+	 * tests the generator written in place of the one of the channel.
+	 */
+	@Test
+	public void testGenerator() {
+		try {
+			RSSDoc generatorDoc = new RSSDoc();
+			RSS rss = generatorDoc
+					.readRSSToBean("<rss version=\"2.0\"><channel><title>t</title>"
+							+ "<link>http://a.com</link><description>d</description>"
+							+ "<generator>my generator</generator></channel></rss>");
+			assertEquals(generatorDoc.getGenerator().getGenerator(),
+					generatorDoc.getLibVersion().getGenerator());
+			assertEquals(writtenGenerator(generatorDoc, rss), generatorDoc
+					.getLibVersion().getGenerator());
+
+			generatorDoc.setGenerator(generatorDoc
+					.buildGenerator("another generator"));
+			assertEquals(writtenGenerator(generatorDoc, rss),
+					"another generator");
+
+			generatorDoc.setGenerator(null);
+			assertNull(generatorDoc.getGenerator());
+			assertEquals(writtenGenerator(generatorDoc, rss), "my generator");
+
+			// the written rss is not changed.
+			assertEquals(rss.getChannel().getGenerator().getGenerator(),
+					"my generator");
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	private String writtenGenerator(RSSDoc doc, RSS rss) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+		return doc.readRSSToBean(out.toString("UTF-8")).getChannel()
+				.getGenerator().getGenerator();
+	}
+
+	/**
+	 * tests writing large channels in parallel.
+	 */
+	@Test
+	public void testWriterExecutor() {
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			final RSSDoc parallelDoc = new RSSDoc();
+			final RSS rss = parallelDoc.readRSSToBean(RSSDocBenchmark
+					.buildSyntheticFeed(2000));
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			parallelDoc.writeRSSDoc(expected, rss, "UTF-8", "1.0");
+
+			assertNull(parallelDoc.getWriterExecutor());
+			parallelDoc.setWriterExecutor(executor);
+			assertSame(parallelDoc.getWriterExecutor(), executor);
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			parallelDoc.writeRSSDoc(actual, rss, "UTF-8", "1.0");
+			assertTrue(Arrays.equals(actual.toByteArray(), expected
+					.toByteArray()));
+
+			// with the selected items only.
+			parallelDoc.setMaxItems(1500);
+			actual = new ByteArrayOutputStream();
+			parallelDoc.writeRSSDoc(actual, rss, "UTF-8", "1.0");
+			parallelDoc.setWriterExecutor(null);
+			expected = new ByteArrayOutputStream();
+			parallelDoc.writeRSSDoc(expected, rss, "UTF-8", "1.0");
+			assertTrue(Arrays.equals(actual.toByteArray(), expected
+					.toByteArray()));
+			parallelDoc.setMaxItems(0);
+
+			// a single threaded executor that the writer itself runs on.
+			final ExecutorService single = Executors.newSingleThreadExecutor();
+			try {
+				parallelDoc.setWriterExecutor(single);
+				byte[] written = single.submit(new Callable<byte[]>() {
+					public byte[] call() throws Exception {
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						parallelDoc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+						return out.toByteArray();
+					}
+				}).get(60, TimeUnit.SECONDS);
+				parallelDoc.setWriterExecutor(null);
+				expected = new ByteArrayOutputStream();
+				parallelDoc.writeRSSDoc(expected, rss, "UTF-8", "1.0");
+				assertTrue(Arrays.equals(written, expected.toByteArray()));
+			} finally {
+				single.shutdown();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * tests adding items to a feed file in place.
+	 */
+	@Test
+	public void testAppendItems() {
+		try {
+			File dir = new File("target/append");
+			dir.mkdirs();
+			File file = new File(dir, "feed.xml");
+			File index = new File(dir, "feed.xml.idx");
+			index.delete();
+
+			RSSDoc appendDoc = new RSSDoc();
+			RSS rss = appendDoc
+					.readRSSToBean("<rss version=\"2.0\"><channel><title>t</title>"
+							+ "<link>http://a.com</link><description>d</description>"
+							+ "<item><title>b</title></item><item><title>c</title></item>"
+							+ "</channel></rss>");
+			appendDoc.writeRSSDoc(file, rss, "UTF-8", "1.0");
+
+			List<Item> items = new LinkedList<Item>();
+			items.add(appendDoc.buildItem(appendDoc.buildTitle("d"), null,
+					null, null, null, null, null, null, null, null, null));
+			appendDoc.appendItems(file, items);
+			assertTrue(index.exists());
+			items.set(0, appendDoc.buildItem(appendDoc.buildTitle("a"), null,
+					null, null, null, null, null, null, null, null, null));
+			appendDoc.prependItems(file, items);
+			items.set(0, appendDoc.buildItem(appendDoc.buildTitle("e & f"),
+					null, null, null, null, null, null, null, null, null, null));
+			appendDoc.appendItems(file, items);
+			assertEquals(fileTitles(appendDoc, file), "abcde & f");
+
+			// the index is built again when it is lost.
+			assertTrue(index.delete());
+			items.set(0, appendDoc.buildItem(appendDoc.buildTitle("0"), null,
+					null, null, null, null, null, null, null, null, null));
+			appendDoc.prependItems(file, items);
+			assertEquals(fileTitles(appendDoc, file), "0abcde & f");
+
+			// or when the file is written again.
+			rss = appendDoc
+					.readRSSToBean("<rss version=\"2.0\"><channel><title>t</title>"
+							+ "<link>http://a.com</link><description>d</description>"
+							+ "</channel></rss>");
+			appendDoc.writeRSSDoc(file, rss, "UTF-8", "1.0");
+			appendDoc.prependItems(file, items);
+			items.set(0, appendDoc.buildItem(appendDoc.buildTitle("1"), null,
+					null, null, null, null, null, null, null, null, null));
+			appendDoc.appendItems(file, items);
+			appendDoc.prependItems(new File("target/append/../append/feed.xml"),
+					items);
+			assertEquals(fileTitles(appendDoc, file), "101");
+
+			// an item in the markup before the first item is not taken for it.
+			String header = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<!DOCTYPE rss [<!ENTITY item \"<item>\">]>\n"
+					+ "<rss version=\"2.0\"><?pi <item> ?><channel>"
+					+ "<!-- <item> --><title>t</title>"
+					+ "<link>http://a.com</link><description><![CDATA[<item>]]>"
+					+ "</description><x:a xmlns:x=\"http://a.com/x\" b=\"c>\">"
+					+ "<item>x</item><x:item/></x:a>";
+			FileOutputStream out = new FileOutputStream(file);
+			out.write((header + "<item><title>b</title></item></channel></rss>")
+					.getBytes("UTF-8"));
+			out.close();
+			index.delete();
+			items.set(0, appendDoc.buildItem(appendDoc.buildTitle("a"), null,
+					null, null, null, null, null, null, null, null, null));
+			appendDoc.prependItems(file, items);
+			assertEquals(fileTitles(appendDoc, file), "ab");
+			RSS prepended = appendDoc.readRSSToBean(file);
+			assertEquals(prepended.getChannel().getDescription()
+					.getDescription(), "&lt;item&gt;");
+			assertEquals(prepended.getChannel().getExtension("x:a")
+					.getContent(), "<item >x</item><x:item />");
+			out = new FileOutputStream(file);
+			out.write((header + "</channel></rss>").getBytes("UTF-8"));
+			out.close();
+			index.delete();
+			appendDoc.prependItems(file, items);
+			assertEquals(fileTitles(appendDoc, file), "a");
+
+			try {
+				appendDoc.appendItems(file, null);
+				fail("should not get here.");
+			} catch (RSSpectException e) {
+				assertEquals(e.getErrorCode(), ErrorCode.INVALID_ARGUMENT);
+			}
+			assertTrue(file.delete());
+			index.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	// a typed Media RSS extension for testExtensionHandler.
+	static class MediaContent {
+		final String url;
+		final int width;
+		final int height;
+
+		MediaContent(String url, int width, int height) {
+			this.url = url;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	static class MediaHandler implements ExtensionHandler {
+
+		public Object read(XMLStreamReader reader) throws Exception {
+			MediaContent content = new MediaContent(reader.getAttributeValue(
+					null, "url"), Integer.parseInt(reader.getAttributeValue(
+					null, "width")), Integer.parseInt(reader.getAttributeValue(
+					null, "height")));
+			reader.getElementText();
+			return content;
+		}
+
+		public void write(XMLStreamWriter writer, Extension extension)
+				throws Exception {
+			MediaContent content = (MediaContent) extension.getValue();
+			writer.writeStartElement(extension.getElementName());
+			if (extension.getAttributes() != null) {
+				for (Attribute attr : extension.getAttributes()) {
+					if (attr.getName().startsWith("xmlns")) {
+						writer.writeAttribute(attr.getName(), attr.getValue());
+					}
+				}
+			}
+			writer.writeAttribute("url", content.url);
+			writer.writeAttribute("width", String.valueOf(content.width));
+			writer.writeAttribute("height", String.valueOf(content.height));
+			writer.writeEndElement();
+		}
+	}
+
+	// counts the child elements of a group with the nextTag() idiom.
+	static class GroupHandler implements ExtensionHandler {
+
+		public Object read(XMLStreamReader reader) throws Exception {
+			int children = 0;
+			while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				children++;
+				reader.nextTag();
+			}
+			return Integer.valueOf(children);
+		}
+
+		public void write(XMLStreamWriter writer, Extension extension)
+				throws Exception {
+			writer.writeEmptyElement(extension.getElementName());
+		}
+	}
+
+	/**
+	 * test that handlers using nextTag() keep the reader's path in step.
+	 */
+	@Test
+	public void testExtensionHandlerNextTag() {
+		try {
+			String ns = "urn:groups";
+			StringBuilder feed = new StringBuilder("<rss version=\"2.0\""
+					+ " xmlns:m=\"" + ns + "\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>");
+			for (int i = 0; i < 20; i++) {
+				feed.append("<item><title>a</title>"
+						+ "<m:g> <m:c/><m:c></m:c> </m:g></item>");
+			}
+			feed.append("<item><title>b</title><m:g><m:c/></m:g>"
+					+ "<enclosure url=\"http://a.com/a.mp3\" type=\"audio/mpeg\"/>"
+					+ "</item></channel></rss>");
+			RSSDoc groupDoc = new RSSDoc();
+			groupDoc.setExtensionHandler(ns, new GroupHandler());
+			// the depth does not grow with every item read by the handler.
+			groupDoc.setReaderLimits(new ReaderLimits(Long.MAX_VALUE, 0, 10,
+					0, 0));
+			ValidationReport report = new ValidationReport();
+			RSS rss = groupDoc.readRSSToBean(new ByteArrayInputStream(feed
+					.toString().getBytes("UTF-8")), report);
+			assertEquals(rss.getChannel().getItems().size(), 21);
+			assertEquals(rss.getChannel().getItems().get(0).getExtension(
+					"m:g").getValue(), Integer.valueOf(2));
+			assertEquals(report.getViolations().size(), 1);
+			assertEquals(report.getViolations().get(0).getPath(),
+					"/rss/channel/item/enclosure");
+			assertNull(rss.getChannel().getItems().get(20).getEnclosure());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testExtensionHandler() {
+		try {
+			String mrss = "http://search.yahoo.com/mrss/";
+			RSSDoc mediaDoc = new RSSDoc();
+			mediaDoc.setExtensionHandler(mrss, new MediaHandler());
+			assertNotNull(mediaDoc.getExtensionHandler(mrss));
+			String feed = "<rss version=\"2.0\" xmlns:media=\"" + mrss + "\""
+					+ " xmlns:dc=\"http://purl.org/dc/elements/1.1/\">"
+					+ "<channel><title>t</title><link>http://a.com</link>"
+					+ "<description>d</description><item><title>a</title>"
+					+ "<media:content url=\"http://a.com/a.jpg\" width=\"640\""
+					+ " height=\"480\"/><dc:creator>Bill</dc:creator>"
+					+ "</item></channel></rss>";
+			Item item = mediaDoc.readRSSToBean(feed).getChannel().getItems()
+					.get(0);
+			Extension media = item.getExtension("media:content");
+			assertEquals(media.getNamespaceURI(), mrss);
+			assertNull(media.getContent());
+			MediaContent content = (MediaContent) media.getValue();
+			assertEquals(content.url, "http://a.com/a.jpg");
+			assertEquals(content.width, 640);
+			assertEquals(content.height, 480);
+
+			// other namespaces are still read into strings.
+			Extension creator = item.getExtension("dc:creator");
+			assertNull(creator.getValue());
+			assertEquals(creator.getContent(), "Bill");
+
+			// the handler writes the typed value back out.
+			String written = mediaDoc.readRSSToString(mediaDoc
+					.readRSSToBean(feed), null, null);
+			assertTrue(written.indexOf("<media:content url=\"http://a.com/a.jpg\""
+					+ " width=\"640\" height=\"480\"") != -1);
+			content = (MediaContent) mediaDoc.readRSSToBean(written)
+					.getChannel().getItems().get(0).getExtension(
+							"media:content").getValue();
+			assertEquals(content.width, 640);
+
+			// typed extensions can be built as well.
+			List<Attribute> attributes = new LinkedList<Attribute>();
+			attributes.add(mediaDoc.buildAttribute("xmlns:media", mrss));
+			Extension built = mediaDoc.buildTypedExtension(mrss,
+					"media:content", attributes, new MediaContent(
+							"http://a.com/b.jpg", 1, 2));
+			assertEquals(((MediaContent) built.getValue()).height, 2);
+
+			// the cached bytes are kept for the handlers they were written
+			// with.
+			RSS typed = mediaDoc.readRSSToBean(feed);
+			mediaDoc.setCachingItems(true);
+			mediaDoc.writeRSSDoc(new ByteArrayOutputStream(), typed, "UTF-8",
+					"1.0");
+			Item cached = typed.getChannel().getItems().get(0);
+			assertNotNull(cached.getFragment(mediaDoc.getFragmentKey()));
+			assertNull(cached.getFragment(rssDoc.getFragmentKey()));
+			// a document without the handler cannot write the value.
+			try {
+				rssDoc.writeRSSDoc(new ByteArrayOutputStream(), typed, "UTF-8",
+						"1.0");
+				fail("we should have thrown an exception above.");
+			} catch (RSSpectException e) {
+				assertEquals(e.getErrorCode(), ErrorCode.INVALID_VALUE);
+			}
+
+			// without the handler the element is read as before.
+			mediaDoc.setExtensionHandler(mrss, null);
+			assertNull(mediaDoc.getExtensionHandler(mrss));
+			media = mediaDoc.readRSSToBean(feed).getChannel().getItems().get(0)
+					.getExtension("media:content");
+			assertNull(media.getValue());
+			assertEquals(media.getAttribute("width").getValue(), "640");
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testExtensionLookup() {
+		try {
+			String mrss = "http://search.yahoo.com/mrss/";
+			String atom = "http://www.w3.org/2005/Atom";
+			RSS rss = rssDoc.readRSSToBean("<rss version=\"2.0\" xmlns:media=\""
+					+ mrss + "\" xmlns:a=\"" + atom + "\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<a:link href=\"http://a.com/feed\" rel=\"self\"/>"
+					+ "<item><title>a</title>"
+					+ "<media:content url=\"http://a.com/1.jpg\"/>"
+					+ "<m:content xmlns:m=\"" + mrss + "\" url=\"http://a.com/2.jpg\"/>"
+					+ "<media:thumbnail url=\"http://a.com/t.jpg\"/>"
+					+ "</item></channel></rss>");
+			Item item = rss.getChannel().getItems().get(0);
+
+			// both prefixes of the namespace are found in document order.
+			List<Extension> contents = item.getExtensions(mrss, "content");
+			assertEquals(contents.size(), 2);
+			assertEquals(contents.get(0).getAttribute("url").getValue(),
+					"http://a.com/1.jpg");
+			assertEquals(contents.get(1).getElementName(), "m:content");
+			assertEquals(item.getExtensionsByNamespace(mrss).size(), 3);
+			assertEquals(item.getExtension("media:thumbnail").getNamespaceURI(),
+					mrss);
+			assertTrue(item.getExtensions(atom, "content").isEmpty());
+			try {
+				contents.clear();
+				fail("should not get here.");
+			} catch (UnsupportedOperationException e) {
+				// the lists are read only.
+			}
+
+			assertEquals(rss.getChannel().getExtensions(atom, "link").get(0)
+					.getAttribute("rel").getValue(), "self");
+			assertTrue(rss.getExtensionsByNamespace(atom).isEmpty());
+			assertNull(rss.getExtension("a:link"));
+
+			// built extensions take the namespace from their declaration.
+			List<Attribute> attributes = new LinkedList<Attribute>();
+			attributes.add(rssDoc.buildAttribute("xmlns:m", mrss));
+			Extension built = rssDoc.buildExtension("m:content", attributes,
+					null);
+			assertEquals(built.getNamespaceURI(), mrss);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testUnboundItemPrefix() {
+		try {
+			RSS rss = rssDoc.readRSSToBean(expectedRSS2);
+			List<Extension> extns = new LinkedList<Extension>();
+			extns.add(rssDoc.buildExtension("test:ext", null, "unbound"));
+			List<Item> items = new LinkedList<Item>();
+			items.add(rssDoc.buildItem(rssDoc.buildTitle("a"), null, null,
+					null, null, null, null, null, null, null, extns));
+			Channel channel = rss.getChannel();
+			channel = rssDoc.buildChannel(channel.getTitle(), channel
+					.getLink(), channel.getDescription(), null, null, null,
+					null, null, null, null, null, null, null, null, null, null,
+					null, null, null, null, items);
+			try {
+				rssDoc.buildRSS(channel, rss.getAttributes(), null);
+				fail("should not get here.");
+			} catch (RSSpectException e) {
+				assertEquals(e.getErrorCode(), ErrorCode.UNBOUND_PREFIX);
+			}
+
+			// a declaration on the rss element binds the item prefix.
+			List<Attribute> attributes = rss.getAttributes();
+			attributes.add(rssDoc.buildAttribute("xmlns:test",
+					"http://12345.com"));
+			assertNotNull(rssDoc.buildRSS(channel, attributes, null));
+
+			// trusted documents are not checked.
+			RSSDoc trusted = new RSSDoc();
+			trusted.setValidationLevel(ValidationLevel.TRUSTED);
+			assertNotNull(trusted.buildRSS(channel, rss.getAttributes(), null));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testPreservingExtensions() {
+		try {
+			String group = "<x:group xmlns:x=\"http://x.com\" a=\"1 &amp; 2\">"
+					+ "<x:a>t &lt; u</x:a><!-- c & d --><x:b/>&nbsp;</x:group>";
+			String feed = "<rss version=\"2.0\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<item><title>a</title>" + group
+					+ "</item></channel></rss>";
+			RSSDoc preservingDoc = new RSSDoc();
+			preservingDoc.setPreservingExtensions(true);
+			assertTrue(preservingDoc.isPreservingExtensions());
+			RSS rss = preservingDoc.readRSSToBean(feed);
+			Extension extension = rss.getChannel().getItems().get(0)
+					.getExtension("x:group");
+			assertEquals(extension.getNamespaceURI(), "http://x.com");
+
+			// the utf-8 writer copies the markup as it was read.
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			preservingDoc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+			assertTrue(out.toString("UTF-8").indexOf(group) != -1);
+
+			// other writers replay it.
+			StringWriter sw = new StringWriter();
+			XMLStreamWriter writer = XMLOutputFactory.newInstance()
+					.createXMLStreamWriter(sw);
+			preservingDoc.writeRSSDoc(writer, rss, "UTF-8", "1.0");
+			writer.close();
+			String written = sw.toString();
+			assertTrue(written.indexOf("<x:a>t &lt; u</x:a><!-- c & d -->") != -1);
+			assertEquals(preservingDoc.readRSSToBean(written).getChannel()
+					.getItems().get(0).getExtension("x:group").getAttribute(
+							"a").getValue(), extension.getAttribute("a")
+					.getValue());
+
+			// indenting leaves the preserved markup alone.
+			preservingDoc.setIndent("  ");
+			out = new ByteArrayOutputStream();
+			preservingDoc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+			assertTrue(out.toString("UTF-8").indexOf("\n      " + group) != -1);
+			sw = new StringWriter();
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(sw);
+			preservingDoc.writeRSSDoc(writer, rss, "UTF-8", "1.0");
+			writer.close();
+			assertTrue(sw.toString().indexOf(
+					"<x:a>t &lt; u</x:a><!-- c & d --><x:b></x:b>") != -1);
+
+			// without preserving the sub elements are written as text.
+			rss = rssDoc.readRSSToBean(feed);
+			out = new ByteArrayOutputStream();
+			rssDoc.writeRSSDoc(out, rss, "UTF-8", "1.0");
+			assertTrue(out.toString("UTF-8").indexOf("&lt;x:a") != -1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testSpillThreshold() {
+		try {
+			StringBuilder article = new StringBuilder();
+			for (int i = 0; i < 200; i++) {
+				article.append("paragraph " + i + " &amp;lt;p&amp;gt; caf&#233; ");
+			}
+			String feed = "<rss version=\"2.0\" xmlns:content=\"http://purl.org/rss/1.0/modules/content/\">"
+					+ "<channel><title>t</title><link>http://a.com</link>"
+					+ "<description>d</description><item><title>a</title>"
+					+ "<description>" + article + "</description>"
+					+ "<content:encoded>" + article + "</content:encoded>"
+					+ "</item></channel></rss>";
+			File directory = new File("target/spill");
+			directory.mkdirs();
+			RSSDoc spillDoc = new RSSDoc();
+			spillDoc.setSpillThreshold(1024);
+			spillDoc.setSpillDirectory(directory);
+			assertEquals(spillDoc.getSpillThreshold(), 1024);
+			RSS spilled = spillDoc.readRSSToBean(feed);
+			assertEquals(directory.listFiles().length, 2);
+
+			// the elements read the text back from the files.
+			RSS kept = rssDoc.readRSSToBean(feed);
+			Item item = spilled.getChannel().getItems().get(0);
+			Item keptItem = kept.getChannel().getItems().get(0);
+			assertEquals(item.getDescription().getDescription(), keptItem
+					.getDescription().getDescription());
+			assertEquals(item.getExtension("content:encoded").getContent(),
+					keptItem.getExtension("content:encoded").getContent());
+			assertEquals(spilled.getChannel().getDescription()
+					.getDescription(), "d");
+
+			// the writers copy the files to the output.
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			spillDoc.writeRSSDoc(out, spilled, "UTF-8", "1.0");
+			ByteArrayOutputStream keptOut = new ByteArrayOutputStream();
+			spillDoc.writeRSSDoc(keptOut, kept, "UTF-8", "1.0");
+			assertEquals(out.toString("UTF-8"), keptOut.toString("UTF-8"));
+
+			// spilled descriptions compare by their text.
+			assertEquals(item.getDescription(), keptItem.getDescription());
+			assertEquals(item, keptItem);
+			RSS otherRSS = spillDoc.readRSSToBean(feed.replace(
+					"<description>paragraph 0", "<description>paragraph zero"));
+			Item other = otherRSS.getChannel().getItems().get(0);
+			assertFalse(other.getDescription().equals(item.getDescription()));
+			assertFalse(other.equals(item));
+			assertTrue(item.getDescription().toString().indexOf("paragraph 199") != -1);
+
+			// serialized elements carry the text with them.
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bytes);
+			oos.writeObject(item);
+			oos.close();
+			Item copy = (Item) new ObjectInputStream(new ByteArrayInputStream(
+					bytes.toByteArray())).readObject();
+			assertEquals(copy.getDescription().getDescription(), keptItem
+					.getDescription().getDescription());
+			assertEquals(copy.getExtension("content:encoded").getContent(),
+					keptItem.getExtension("content:encoded").getContent());
+
+			// the owner deletes the files.
+			spillDoc.deleteSpilledText(spilled);
+			spillDoc.deleteSpilledText(otherRSS);
+			assertEquals(directory.listFiles().length, 0);
+			try {
+				item.getDescription().getDescription();
+				fail("should not be able to read deleted text.");
+			} catch (IllegalStateException e) {
+				assertTrue(e.getMessage().indexOf("cannot be read") != -1);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testXHTMLFilter() {
+		try {
+			String feed = "<rss version=\"2.0\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<x:div xmlns:x=\"http://www.w3.org/1999/xhtml\">"
+					+ "<x:div><x:p onclick=\"steal()\" class=\"c\">a &amp; "
+					+ "<x:span>b</x:span><x:script>alert(1)</x:script></x:p>"
+					+ "<x:a href=\"javascript:steal()\">c</x:a><x:br/></x:div>"
+					+ "</x:div></channel></rss>";
+
+			// without a filter the nested content is kept as it is.
+			Extension div = rssDoc.readRSSToBean(feed).getChannel()
+					.getExtension("x:div");
+			assertEquals(div.getContent(), "<x:div><x:p onclick=\"steal()\""
+					+ " class=\"c\">a &amp; <x:span>b</x:span>"
+					+ "<x:script>alert(1)</x:script></x:p>"
+					+ "<x:a href=\"javascript:steal()\">c</x:a><x:br /></x:div>");
+
+			RSSDoc filterDoc = new RSSDoc();
+			filterDoc.setXHTMLFilter(new XHTMLFilter(new HashSet<String>(
+					Arrays.asList("div", "p", "a", "br")), new HashSet<String>(
+					Arrays.asList("href", "class")), new HashSet<String>(
+					Arrays.asList("script"))));
+			assertNotNull(filterDoc.getXHTMLFilter());
+			div = filterDoc.readRSSToBean(feed).getChannel().getExtension(
+					"x:div");
+			assertEquals(div.getContent(), "<x:div><x:p class=\"c\">a &amp; "
+					+ "b</x:p><x:a>c</x:a><x:br /></x:div>");
+
+			// entities that are not resolved are kept as they were written.
+			div = filterDoc.readRSSToBean(
+					feed.replace("a &amp; ", "a&nbsp;&amp;&eacute; "))
+					.getChannel().getExtension("x:div");
+			assertEquals(div.getContent(), "<x:div><x:p class=\"c\">a&nbsp;"
+					+ "&amp;&eacute; b</x:p><x:a>c</x:a><x:br /></x:div>");
+
+			// only http, https, mailto and relative URIs are kept.
+			feed = "<rss version=\"2.0\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<x:div xmlns:x=\"http://www.w3.org/1999/xhtml\">"
+					+ "<x:a href=\"jav&#x09;ascript:steal()\">1</x:a>"
+					+ "<x:a href=\" Java&#x0A;Script:steal()\">2</x:a>"
+					+ "<x:a href=\"vbscript:steal()\">3</x:a>"
+					+ "<x:a href=\"data:text/html,steal\">4</x:a>"
+					+ "<x:a href=\"HTTP://a.com/b?c=d:e\">5</x:a>"
+					+ "<x:a href=\"https://a.com\">6</x:a>"
+					+ "<x:a href=\"mailto:a@a.com\">7</x:a>"
+					+ "<x:a href=\"b/c:d#e\">8</x:a>"
+					+ "<x:a class=\"note: c\">9</x:a>"
+					+ "</x:div></channel></rss>";
+			div = filterDoc.readRSSToBean(feed).getChannel().getExtension(
+					"x:div");
+			assertEquals(div.getContent(), "<x:a>1</x:a><x:a>2</x:a>"
+					+ "<x:a>3</x:a><x:a>4</x:a>"
+					+ "<x:a href=\"HTTP://a.com/b?c=d:e\">5</x:a>"
+					+ "<x:a href=\"https://a.com\">6</x:a>"
+					+ "<x:a href=\"mailto:a@a.com\">7</x:a>"
+					+ "<x:a href=\"b/c:d#e\">8</x:a>"
+					+ "<x:a class=\"note: c\">9</x:a>");
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	@Test
+	public void testSnippet() {
+		try {
+			RSS rss = rssDoc.readRSSToBean(new File(
+					"src/test/resources/nyTimes.rss.xml"));
+			Item item = rss.getChannel().getItems().get(0);
+			assertEquals(item.getSnippet(), "The plan seems certain to include"
+					+ " a procedural maneuver meant to avoid filibusters on"
+					+ " health care reform, and likely to anger Republicans.");
+			// the copies share the snippet.
+			assertSame(rss.getChannel().getItems().get(0).getSnippet(), item
+					.getSnippet());
+			assertEquals(item.getSnippet(40),
+					"The plan seems certain to include a...");
+
+			String feed = "<rss version=\"2.0\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<item><title>a</title><description>&lt;p&gt;Fish"
+					+ " &amp;amp;\n\t chips&lt;script&gt;var a = 1 &lt; 2;"
+					+ "&lt;/script&gt;&lt;!-- x --&gt; &amp;lt;3 &amp;#169;"
+					+ "&amp;nbsp;2010&lt;/p&gt;</description></item>"
+					+ "<item><title>b</title></item></channel></rss>";
+			List<Item> items = rssDoc.readRSSToBean(feed).getChannel()
+					.getItems();
+			assertEquals(items.get(0).getSnippet(),
+					"Fish & chips <3 \u00a9 2010");
+			assertEquals(items.get(0).getSnippet(7), "Fish &...");
+			assertNull(items.get(1).getSnippet());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * test reading undeclared html entities.
+	 */
+	@Test
+	public void testHTMLEntities() {
+		try {
+			String feed = "<rss version=\"2.0\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">"
+					+ "<channel><title>caf&eacute;</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<item><title>a&nbsp;b &foo; &amp;</title>"
+					+ "<description>Fish&nbsp;&amp;amp; chips&hellip;</description>"
+					+ "<dc:creator>Ren&eacute;e</dc:creator></item>"
+					+ "</channel></rss>";
+			RSSDoc resolving = new RSSDoc();
+			assertFalse(resolving.isResolvingHTMLEntities());
+			resolving.setResolvingHTMLEntities(true);
+			assertTrue(resolving.isResolvingHTMLEntities());
+			Channel channel = resolving.readRSSToBean(feed).getChannel();
+			assertEquals(channel.getTitle().getTitle(), "caf\u00e9");
+			Item item = channel.getItems().get(0);
+			// unknown entities are kept.
+			assertEquals(item.getTitle().getTitle(), "a\u00a0b &foo; &");
+			assertEquals(item.getDescription().getDescription(),
+					"Fish\u00a0&amp;amp; chips\u2026");
+			assertEquals(item.getExtension("dc:creator").getContent(),
+					"Ren\u00e9e");
+			assertEquals(item.getSnippet(), "Fish & chips\u2026");
+
+			// without resolving, the entities are kept as text.
+			item = rssDoc.readRSSToBean(
+					feed.replaceAll("<title>[^<]*</title>", "<title>t</title>"))
+					.getChannel().getItems().get(0);
+			assertEquals(item.getDescription().getDescription(),
+					"Fish&amp;nbsp;&amp;amp; chips&amp;hellip;");
+			assertEquals(item.getExtension("dc:creator").getContent(),
+					"Ren&eacute;e");
+			// the snippet decodes them either way.
+			assertEquals(item.getSnippet(), "Fish & chips\u2026");
+			assertEquals(HTMLEntities.resolve("NotNestedLessLess"),
+					"\u2aa1\u0338");
+			assertNull(HTMLEntities.resolve("nosuchentity"));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * test the qualified names of extensions.
+	 */
+	@Test
+	public void testExtensionQName() {
+		try {
+			String atom = "http://www.w3.org/2005/Atom";
+			String feed = "<rss version=\"2.0\" xmlns:atom=\"" + atom
+					+ "\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<atom:link href=\"http://a.com/feed\" rel=\"self\"/>"
+					+ "<item><title>a</title>"
+					+ "<a:link xmlns:a=\"" + atom + "\" href=\"http://a.com/1\"/>"
+					+ "<plain xmlns=\"urn:plain\">text</plain>"
+					+ "</item></channel></rss>";
+			RSS rss = rssDoc.readRSSToBean(feed);
+			Extension channelLink = rss.getChannel().getExtension("atom:link");
+			Extension itemLink = rss.getChannel().getItems().get(0)
+					.getExtension("a:link");
+			QName qName = itemLink.getQName();
+			assertEquals(qName.getNamespaceURI(), atom);
+			assertEquals(qName.getLocalPart(), "link");
+			assertEquals(qName.getPrefix(), "a");
+			// the prefix does not matter to the name.
+			assertEquals(channelLink.getQName(), qName);
+			assertSame(channelLink.getQName().getLocalPart(), qName
+					.getLocalPart());
+			assertSame(channelLink.getQName().getNamespaceURI(), qName
+					.getNamespaceURI());
+			assertEquals(rss.getChannel().getItems().get(0).getExtension(
+					new QName(atom, "link", "atom")).getAttribute("href")
+					.getValue(), "http://a.com/1");
+			assertEquals(rss.getChannel().getExtension(new QName(atom, "link"))
+					.getElementName(), "atom:link");
+			assertNull(rss.getChannel().getExtension(new QName("link")));
+			Extension plain = rss.getChannel().getItems().get(0).getExtension(
+					new QName("urn:plain", "plain"));
+			assertEquals(plain.getQName().getPrefix(), "");
+			assertEquals(plain.getContent(), "text");
+
+			// the writers keep the prefix of each element.
+			String written = rss.toString();
+			assertTrue(written.indexOf("<atom:link") != -1);
+			assertTrue(written.indexOf("<a:link") != -1);
+			assertTrue(written.indexOf("<plain xmlns=\"urn:plain\"") != -1);
+
+			// built extensions without a namespace have an empty one.
+			Extension built = rssDoc.buildExtension("x:y", null, null);
+			assertEquals(built.getQName().getNamespaceURI(), "");
+			assertNull(built.getNamespaceURI());
+			assertEquals(built.getQName().getPrefix(), "x");
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * test declaring the extension namespaces on the rss element.
+	 */
+	@Test
+	public void testHoistingNamespaces() {
+		try {
+			String atom = "http://www.w3.org/2005/Atom";
+			String dc = "http://purl.org/dc/elements/1.1/";
+			String feed = "<rss version=\"2.0\" xmlns:dc=\"" + dc
+					+ "\"><channel><title>t</title>"
+					+ "<link>http://a.com</link><description>d</description>"
+					+ "<atom:link xmlns:atom=\"" + atom + "\" href=\"http://a.com/feed\"/>"
+					+ "<item><title>a</title><dc:creator>Bill</dc:creator>"
+					+ "<a:link xmlns:a=\"" + atom + "\" href=\"http://a.com/1\"/>"
+					+ "<dc:subject xmlns:dc=\"urn:other\">x</dc:subject>"
+					+ "<m:content xmlns:m=\"urn:m\" m:url=\"http://a.com/1.jpg\"/>"
+					+ "</item><item><title>b</title>"
+					+ "<atom:link xmlns:atom=\"" + atom + "\" href=\"http://a.com/2\"/>"
+					+ "<plain xmlns=\"urn:plain\">text</plain>"
+					+ "</item></channel></rss>";
+			RSSDoc hoisting = new RSSDoc();
+			assertFalse(hoisting.isHoistingNamespaces());
+			hoisting.setHoistingNamespaces(true);
+			assertTrue(hoisting.isHoistingNamespaces());
+			RSS rss = hoisting.readRSSToBean(feed);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			hoisting.writeRSSDoc(out, rss, "UTF-8", "1.0");
+			String written = out.toString("UTF-8");
+			StringWriter stax = new StringWriter();
+			hoisting.writeRSSDoc(XMLOutputFactory.newInstance()
+					.createXMLStreamWriter(stax), rss, "UTF-8", "1.0");
+			// both writers hoist the same way.
+			assertEquals(stax.toString().replaceAll("<\\?xml[^>]*>", ""),
+					written.replaceAll("<\\?xml[^>]*>", ""));
+
+			// each namespace is declared once.
+			assertEquals(written.split("xmlns:atom=").length, 2);
+			assertTrue(written.indexOf("xmlns:dc2=\"urn:other\"") != -1);
+			assertTrue(written.indexOf("<atom:link href=\"http://a.com/1\"") != -1);
+			assertTrue(written.indexOf("<dc2:subject>x</dc2:subject>") != -1);
+			assertTrue(written.indexOf("<m:content m:url=") != -1);
+			assertTrue(written.indexOf("<plain xmlns=\"urn:plain\">") != -1);
+
+			// the hoisted feed reads back to the same extensions.
+			Channel channel = hoisting.readRSSToBean(written).getChannel();
+			Item item = channel.getItems().get(0);
+			assertEquals(item.getExtensions(atom, "link").get(0).getAttribute(
+					"href").getValue(), "http://a.com/1");
+			assertEquals(item.getExtensions("urn:other", "subject").get(0)
+					.getContent(), "x");
+			assertEquals(item.getExtensions(dc, "creator").get(0).getContent(),
+					"Bill");
+			assertEquals(channel.getItems().get(1).getExtensions("urn:plain",
+					"plain").size(), 1);
+			assertEquals(channel.getExtensions(atom, "link").size(), 1);
+
+			// nothing changes without hoisting.
+			assertTrue(rss.toString().indexOf(
+					"<a:link xmlns:a=\"" + atom + "\"") != -1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("should be working. " + e.getLocalizedMessage());
+		}
+	}
+
+	private String fileTitles(RSSDoc doc, File file) throws Exception {
+		StringBuilder titles = new StringBuilder();
+		for (Item item : doc.readRSSToBean(file).getChannel().getItems()) {
+			titles.append(item.getTitle().getTitle());
+		}
+		return titles.toString();
+	}
 }